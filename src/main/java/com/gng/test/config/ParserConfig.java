@@ -0,0 +1,49 @@
+package com.gng.test.config;
+
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.parser.PersonSchemas;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class ParserConfig {
+
+    //Compiled once at startup; a layout that doesn't fit PersonRecord fails the application context
+    @Bean
+    public PersonSchema personSchema(@Value("${parser.schema.delimiter:|}") char delimiter,
+                                     @Value("${parser.schema.columns:uuid,id,name,likes,transport,avg_speed,top_speed}") String[] columns) {
+        return PersonSchema.compile(delimiter, List.of(columns));
+    }
+
+    //Named layouts, parser.schemas.<name>.delimiter and .columns, compiled up front like the default one
+    @Bean
+    public PersonSchemas personSchemas(PersonSchema personSchema, Environment environment) {
+        Map<String, Layout> layouts = Binder.get(environment)
+                .bind("parser.schemas", Bindable.mapOf(String.class, Layout.class))
+                .orElse(Map.of());
+
+        Map<String, PersonSchema> named = new LinkedHashMap<>();
+        layouts.forEach((name, layout) -> {
+            if (layout.columns() == null || layout.columns().isEmpty()) {
+                throw new IllegalArgumentException("parser.schemas." + name + ".columns must be set");
+            }
+            try {
+                named.put(name, PersonSchema.compile(layout.delimiter() != null ? layout.delimiter() : '|', layout.columns()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("parser.schemas." + name + ": " + e.getMessage(), e);
+            }
+        });
+        return new PersonSchemas(personSchema, named);
+    }
+
+    record Layout(Character delimiter, List<String> columns) {
+    }
+}
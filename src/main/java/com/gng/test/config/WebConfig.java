@@ -1,7 +1,11 @@
 package com.gng.test.config;
 
+import com.gng.test.interceptor.AdmissionControlFilter;
 import com.gng.test.interceptor.ApiCallLoggingInterceptor;
+import com.gng.test.service.AdmissionControlService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -21,4 +25,12 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addInterceptor(loggingInterceptor)
                 .addPathPatterns("/**"); // applies to all endpoints
     }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdmissionControlService admissionControlService) {
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionControlFilter(admissionControlService));
+        registration.addUrlPatterns("/process", "/process/batch", "/process/uploads"); // uploads and session starts only; polls, parts and actuator calls are never held back
+        return registration;
+    }
 }
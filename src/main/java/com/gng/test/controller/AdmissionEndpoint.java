@@ -0,0 +1,27 @@
+package com.gng.test.controller;
+
+import com.gng.test.dto.AdmissionStatusDTO;
+import com.gng.test.service.AdmissionControlService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * GET /actuator/admission: memory charged to uploads in flight, the line waiting to get in, and the heap headroom
+ * the admission decisions are based on.
+ */
+@Component
+@Endpoint(id = "admission")
+public class AdmissionEndpoint {
+
+    private final AdmissionControlService admissionControlService;
+
+    public AdmissionEndpoint(AdmissionControlService admissionControlService) {
+        this.admissionControlService = admissionControlService;
+    }
+
+    @ReadOperation
+    public AdmissionStatusDTO admission() {
+        return admissionControlService.getStatus();
+    }
+}
@@ -1,94 +1,578 @@
 package com.gng.test.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.gng.test.model.ParseResult;
+import com.gng.test.dto.FileParseErrorDTO;
+import com.gng.test.dto.ProcessingJobDTO;
+import com.gng.test.dto.UploadSessionDTO;
+import com.gng.test.interceptor.AdmissionControlFilter;
+import com.gng.test.model.CachedResult;
+import com.gng.test.model.ContentEncodedMultipartFile;
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.ResultCacheKey;
+import com.gng.test.model.SpooledUpload;
+import com.gng.test.model.UploadSession;
+import com.gng.test.output.OutcomeFormat;
+import com.gng.test.parser.Compression;
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.parser.PersonSchemas;
+import com.gng.test.service.BatchProcessingService;
+import com.gng.test.service.ContentDigest;
+import com.gng.test.service.ErrorBudgetSink;
 import com.gng.test.service.FileValidationService;
 import com.gng.test.service.GeoRestrictionService;
+import com.gng.test.service.OutcomeFileProcessor;
+import com.gng.test.service.ProcessingJobService;
+import com.gng.test.service.ResultCacheService;
+import com.gng.test.service.ResultRecording;
+import com.gng.test.service.UploadSessionService;
+import com.gng.test.service.UploadSpoolService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/process")
 public class FileValidationController {
 
     private static final Logger logger = LoggerFactory.getLogger(FileValidationController.class);
+    //Set on a 400 whose error list stops at maxErrors because the file was not read to the end
+    public static final String ERRORS_TRUNCATED_HEADER = "X-Errors-Truncated";
+    private static final String BATCH_FILE_NAME = "OutcomeFiles.zip";
+    private static final MediaType ZIP = new MediaType("application", "zip");
     private final FileValidationService fileValidationService;
     private final GeoRestrictionService geoRestrictionService;
+    private final UploadSpoolService uploadSpoolService;
+    private final ProcessingJobService processingJobService;
+    private final ResultCacheService resultCacheService;
+    private final UploadSessionService uploadSessionService;
+    private final BatchProcessingService batchProcessingService;
+    private final PersonSchemas personSchemas;
+    private final ObjectMapper objectMapper;
+    private final int defaultMaxErrors;
+    private final int maxBatchFiles;
+    //Outcome files of valid uploads wait here until they are sent
+    private final Path spoolDir;
 
     @Autowired
     public FileValidationController(FileValidationService fileValidationService,
-                                    GeoRestrictionService geoRestrictionService) {
+                                    GeoRestrictionService geoRestrictionService,
+                                    UploadSpoolService uploadSpoolService,
+                                    ProcessingJobService processingJobService,
+                                    ResultCacheService resultCacheService,
+                                    UploadSessionService uploadSessionService,
+                                    BatchProcessingService batchProcessingService,
+                                    PersonSchemas personSchemas,
+                                    ObjectMapper objectMapper,
+                                    @Value("${process.max-errors:1000}") int defaultMaxErrors,
+                                    @Value("${process.batch.max-files:100}") int maxBatchFiles,
+                                    @Value("${upload.spool.dir:${java.io.tmpdir}}") Path spoolDir) {
         this.fileValidationService = fileValidationService;
         this.geoRestrictionService = geoRestrictionService;
+        this.uploadSpoolService = uploadSpoolService;
+        this.processingJobService = processingJobService;
+        this.resultCacheService = resultCacheService;
+        this.uploadSessionService = uploadSessionService;
+        this.batchProcessingService = batchProcessingService;
+        this.personSchemas = personSchemas;
+        this.objectMapper = objectMapper;
+        this.defaultMaxErrors = defaultMaxErrors;
+        this.maxBatchFiles = maxBatchFiles;
+        this.spoolDir = spoolDir;
     }
 
     @PostMapping
     public ResponseEntity<?> ingestFile(@RequestParam("file") MultipartFile file,
                                         @RequestParam(value = "flag", required = false) Boolean flag,
+                                        @RequestParam(value = "maxErrors", required = false) Integer maxErrors,
+                                        @RequestParam(value = "checkDuplicates", required = false) Boolean checkDuplicates,
+                                        @RequestParam(value = "format", required = false) String format,
+                                        @RequestParam(value = "async", required = false) Boolean async,
+                                        @RequestParam(value = "incremental", required = false) Boolean incremental,
+                                        @RequestParam(value = "schema", required = false) String schema,
                                         HttpServletRequest request) {
         logger.info("Processing input file");
-        if (flag == null) flag = false;
 
-        try {
-            geoRestrictionService.checkAccess(request);
-        } catch (AccessDeniedException ex) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ex.getMessage());
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        //Gzip and zlib uploads are also recognized by their magic bytes; raw deflate has to be declared
+        String contentEncoding = contentEncoding(request, "file");
+        Compression compression = Compression.fromContentEncoding(contentEncoding);
+        if (compression == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("Unsupported Content-Encoding: " + contentEncoding);
+        }
+
+        Parsed<ProcessingOptions> parsed = optionsOf(compression, flag, checkDuplicates, incremental, maxErrors,
+                format, request.getHeader(HttpHeaders.ACCEPT), schema);
+        if (parsed.error() != null) {
+            return parsed.error();
+        }
+        ProcessingOptions options = parsed.value();
+
+        ResponseEntity<?> denied = checkAccess(request);
+        if (denied != null) {
+            return denied;
         }
 
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body("The file cannot be empty");
         }
 
+        //Async mode: the upload is handed to a background job and the client polls for the result.
+        //The job takes the request's admission permit along, so the upload stays charged until it is processed
+        if (Boolean.TRUE.equals(async)) {
+            try {
+                ProcessingJob job = processingJobService.submit(file, options, AdmissionControlFilter.takePermit(request));
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header(HttpHeaders.LOCATION, "/process/jobs/" + job.getId())
+                        .body(toDto(job));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Processing job queue is full");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many files are being processed, try again later");
+            } catch (Exception e) {
+                logger.error("Error submitting processing job", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+            }
+        }
+
+        //Large uploads are moved to a file we own so the parser can memory-map them
+        SpooledUpload upload = null;
+        Path outcomeFile = null;
+        boolean streaming = false;
         try {
-            //Parsing & optional validation
-            ParseResult result = fileValidationService.parseAndValidate(file, flag);
+            //Retried uploads are answered from the result cache without being parsed again
+            ResultCacheKey cacheKey = resultCacheService.lookupKey(file, options);
+            CachedResult cached = resultCacheService.get(cacheKey);
+            if (cached != null) {
+                logger.info("Returning cached result");
+                return replay(cached, options.format());
+            }
 
-            //If there were any errors (parsing or validation)
-            if (!result.getErrors().isEmpty()) {
-                logger.warn("File processed with {} errors", result.getErrors().size());
-                return ResponseEntity.badRequest().body(result.getErrors());
+            upload = uploadSpoolService.spool(file);
+            MultipartFile input = options.compression() == Compression.NONE
+                    ? upload.getFile()
+                    : new ContentEncodedMultipartFile(upload.getFile(), options.compression());
+
+            //Single pass: parsing & optional validation, with records written to a spool file as they come.
+            //The status can only be sent once the whole file has been checked, so the outcome waits on disk
+            //rather than the file being parsed a second time to write it.
+            //A first upload isn't read just to be hashed; the digest is taken as the parse reads it
+            ContentDigest digest = cacheKey == null ? resultCacheService.newDigest() : null;
+            Files.createDirectories(spoolDir);
+            outcomeFile = Files.createTempFile(spoolDir, "outcome-", ".tmp");
+            ErrorBudgetSink result = OutcomeFileProcessor.process(fileValidationService, input, options,
+                    outcomeFile, null, objectMapper, digest);
+            if (cacheKey == null) {
+                //The original part may have been moved by the spool
+                cacheKey = resultCacheService.keyOf(upload.getFile(), options, digest);
             }
+            List<FileParseErrorDTO> errors = result.getErrors();
 
-            List<Map<String, Object>> list = result.getValidRecords().stream()
-                    .map(r -> Map.<String, Object>of(
-                            "name", r.name(),
-                            "transport", r.transport(),
-                            "top_speed", r.top_speed()
-                    ))
-                    .toList();
+            //If there were any errors (parsing or validation)
+            if (!errors.isEmpty()) {
+                resultCacheService.putErrors(cacheKey, objectMapper.writeValueAsBytes(errors), result.isTruncated());
+                if (result.isTruncated()) {
+                    logger.warn("File processing stopped after {} errors", errors.size());
+                    return ResponseEntity.badRequest()
+                            .header(ERRORS_TRUNCATED_HEADER, "true")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(errors);
+                }
+                logger.warn("File processed with {} errors", errors.size());
+                //Errors are always JSON, whichever outcome format was asked for
+                return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(errors);
+            }
 
-            //Convert to JSON bytes
-            ObjectMapper mapper = new ObjectMapper();
-            byte[] jsonBytes = mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(list);
+            //The response body now owns the outcome file and deletes it once sent.
+            //The outcome is copied into the result cache as it is sent, and only kept if it was written in full
+            Path owned = outcomeFile;
+            ResultCacheKey outcomeKey = cacheKey;
+            StreamingResponseBody body = out -> {
+                try (ResultRecording recording = resultCacheService.record(outcomeKey, out)) {
+                    Files.copy(owned, recording.stream());
+                    recording.commit();
+                } finally {
+                    Files.deleteIfExists(owned);
+                }
+            };
+            streaming = true;
 
-            //Return a JSON file for download
+            //Return the outcome file for download
             return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=OutcomeFile.json")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .contentLength(jsonBytes.length)
-                    .body(jsonBytes);
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + options.format().fileName())
+                    .contentType(options.format().contentType())
+                    .contentLength(Files.size(owned))
+                    .body(body);
 
         } catch (Exception e) {
             logger.error("Error processing file", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        } finally {
+            if (upload != null) {
+                closeQuietly(upload);
+            }
+            if (outcomeFile != null && !streaming) {
+                deleteQuietly(outcomeFile);
+            }
+        }
+    }
+
+    /**
+     * Status of an async processing job, or its result once it is done: the outcome file for a valid upload,
+     * or the same 400 error list the synchronous call would have returned.
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getJob(@PathVariable("id") String id) {
+        ProcessingJob job = processingJobService.find(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown or expired job: " + id);
+        }
+
+        return resultOf(job, toDto(job));
+    }
+
+    /**
+     * Processes many files sent in one request as "files" parts, with one access check for all of them.
+     * The files are parsed in parallel and the response is a ZIP streamed as they finish: each file's outcome file,
+     * or its error list, under "{n}-{filename}/", and summary.json last with every file's status in upload order.
+     * The outcome format can only be chosen with the format parameter, since the Accept header is for the ZIP.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> ingestBatch(@RequestParam("files") List<MultipartFile> files,
+                                         @RequestParam(value = "flag", required = false) Boolean flag,
+                                         @RequestParam(value = "maxErrors", required = false) Integer maxErrors,
+                                         @RequestParam(value = "checkDuplicates", required = false) Boolean checkDuplicates,
+                                         @RequestParam(value = "format", required = false) String format,
+                                         @RequestParam(value = "incremental", required = false) Boolean incremental,
+                                         @RequestParam(value = "schema", required = false) String schema,
+                                         HttpServletRequest request) {
+        logger.info("Processing batch of {} files", files.size());
+        if (files.size() > maxBatchFiles) {
+            return ResponseEntity.badRequest().body("At most " + maxBatchFiles + " files can be sent in one batch");
+        }
+
+        //Parts share one name, so there is no Content-Encoding per file; gzip and zlib are recognized by their magic bytes.
+        //The Accept header is for the ZIP, so it doesn't pick the outcome format
+        Parsed<ProcessingOptions> parsed = optionsOf(Compression.NONE, flag, checkDuplicates, incremental, maxErrors,
+                format, null, schema);
+        if (parsed.error() != null) {
+            return parsed.error();
+        }
+        ProcessingOptions options = parsed.value();
+
+        ResponseEntity<?> denied = checkAccess(request);
+        if (denied != null) {
+            return denied;
+        }
+
+        StreamingResponseBody body = out -> batchProcessingService.process(files, options, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + BATCH_FILE_NAME)
+                .contentType(ZIP)
+                .body(body);
+    }
+
+    /**
+     * Starts a resumable upload. The file is then sent as numbered parts, from 1, to PUT /process/uploads/{id}/parts/{n},
+     * and finished with POST /process/uploads/{id}/complete?parts=N. Parts are parsed as soon as they arrive,
+     * so the result is nearly ready by the time the last part is in, and a part whose request failed can be sent again alone.
+     * Gzip and zlib content is recognized by its magic bytes; raw deflate can't be sent this way.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> startUpload(@RequestParam(value = "flag", required = false) Boolean flag,
+                                         @RequestParam(value = "maxErrors", required = false) Integer maxErrors,
+                                         @RequestParam(value = "checkDuplicates", required = false) Boolean checkDuplicates,
+                                         @RequestParam(value = "format", required = false) String format,
+                                         @RequestParam(value = "incremental", required = false) Boolean incremental,
+                                         @RequestParam(value = "schema", required = false) String schema,
+                                         HttpServletRequest request) {
+        Parsed<ProcessingOptions> parsed = optionsOf(Compression.NONE, flag, checkDuplicates, incremental, maxErrors,
+                format, request.getHeader(HttpHeaders.ACCEPT), schema);
+        if (parsed.error() != null) {
+            return parsed.error();
+        }
+
+        ResponseEntity<?> denied = checkAccess(request);
+        if (denied != null) {
+            return denied;
+        }
+
+        //The session holds the request's admission permit until its parse is done, however long the parts take
+        try {
+            UploadSession session = uploadSessionService.start(parsed.value(), AdmissionControlFilter.takePermit(request));
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(HttpHeaders.LOCATION, "/process/uploads/" + session.getId())
+                    .body(toDto(session));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many open upload sessions");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many uploads in progress, try again later");
+        } catch (Exception e) {
+            logger.error("Error starting upload session", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Receives one part of a resumable upload as the raw request body.
+     */
+    @PutMapping("/uploads/{id}/parts/{part}")
+    public ResponseEntity<?> putPart(@PathVariable("id") String id, @PathVariable("part") int part,
+                                     HttpServletRequest request) {
+        try {
+            UploadSession session = uploadSessionService.putPart(id, part, request.getInputStream());
+            if (session == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown or expired upload: " + id);
+            }
+            return ResponseEntity.ok(toDto(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Part {} of upload {} was not received", part, id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Finishes a resumable upload and returns its result like GET /process/jobs/{id}; if the parse still needs
+     * longer, the status comes back with a 202 and the result can be fetched from GET /process/uploads/{id}.
+     * Missing parts are listed with a 409; they can be sent and the upload completed again.
+     */
+    @PostMapping("/uploads/{id}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable("id") String id, @RequestParam("parts") int parts) {
+        try {
+            UploadSession session = uploadSessionService.complete(id, parts);
+            if (session == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown or expired upload: " + id);
+            }
+            return resultOf(session.getJob(), toDto(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Interrupted while waiting for the result");
+        }
+    }
+
+    /**
+     * Status of a resumable upload, or its result once it is done.
+     */
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<?> getUpload(@PathVariable("id") String id) {
+        UploadSession session = uploadSessionService.find(id);
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown or expired upload: " + id);
+        }
+        return resultOf(session.getJob(), toDto(session));
+    }
+
+    @DeleteMapping("/uploads/{id}")
+    public ResponseEntity<?> abortUpload(@PathVariable("id") String id) {
+        if (!uploadSessionService.abort(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown or expired upload: " + id);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * The result of a job that is done: the outcome file for a valid upload, or the same 400 error list
+     * the synchronous call would have returned. Otherwise the given status body, with a 202 or, if it failed, a 500.
+     */
+    private static ResponseEntity<?> resultOf(ProcessingJob job, Object status) {
+        switch (job.getStatus()) {
+            case SUCCEEDED: {
+                OutcomeFormat outcomeFormat = job.getOptions().format();
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + outcomeFormat.fileName())
+                        .contentType(outcomeFormat.contentType())
+                        .body(copyOf(job.getResultFile()));
+            }
+            case INVALID: {
+                ResponseEntity.BodyBuilder response = ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON);
+                if (job.isErrorsTruncated()) {
+                    response.header(ERRORS_TRUNCATED_HEADER, "true");
+                }
+                return response.body(copyOf(job.getResultFile()));
+            }
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(status);
+            default:
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        }
+    }
+
+    /**
+     * Sends a cached result the way it was first sent: the outcome file as a download, or the error report as a 400.
+     */
+    private static ResponseEntity<?> replay(CachedResult cached, OutcomeFormat outcomeFormat) {
+        ResponseEntity.BodyBuilder response;
+        if (cached.valid()) {
+            response = ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + outcomeFormat.fileName())
+                    .contentType(outcomeFormat.contentType());
+        } else {
+            response = ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON);
+            if (cached.errorsTruncated()) {
+                response.header(ERRORS_TRUNCATED_HEADER, "true");
+            }
+        }
+        //A result evicted from the disk tier while it is being sent is cut off, as with an expired job result
+        StreamingResponseBody body = cached::writeTo;
+        return response.contentLength(cached.size()).body(body);
+    }
+
+    //The result may expire while it is being sent; the client then gets a cut-off response
+    private static StreamingResponseBody copyOf(Path resultFile) {
+        return out -> Files.copy(resultFile, out);
+    }
+
+    private static ProcessingJobDTO toDto(ProcessingJob job) {
+        boolean invalid = job.getStatus() == ProcessingJob.Status.INVALID;
+        return new ProcessingJobDTO(
+                job.getId(),
+                job.getStatus().name(),
+                job.getSubmittedAt(),
+                job.getCompletedAt(),
+                invalid ? job.getErrorCount() : null,
+                invalid ? job.isErrorsTruncated() : null,
+                job.getMessage()
+        );
+    }
+
+    private static UploadSessionDTO toDto(UploadSession session) {
+        ProcessingJob job = session.getJob();
+        boolean invalid = job.getStatus() == ProcessingJob.Status.INVALID;
+        int totalParts = session.getTotalParts();
+        return new UploadSessionDTO(
+                session.getId(),
+                job.getStatus().name(),
+                session.getReceivedParts(),
+                session.getReceivedBytes(),
+                session.getNextPart(),
+                totalParts >= 0 ? totalParts : null,
+                invalid ? job.getErrorCount() : null,
+                invalid ? job.isErrorsTruncated() : null,
+                job.getMessage()
+        );
+    }
+
+    /**
+     * Reads the processing parameters every upload endpoint takes. Flags that aren't given are off.
+     * @param accept the Accept header, used when no format is given; null for JSON
+     * @return the options, or the 400 for a parameter that is out of range or unknown
+     */
+    private Parsed<ProcessingOptions> optionsOf(Compression compression, Boolean flag, Boolean checkDuplicates,
+                                                Boolean incremental, Integer maxErrors, String format, String accept,
+                                                String schema) {
+        int errorBudget = maxErrors != null ? maxErrors : defaultMaxErrors;
+        if (errorBudget < 1) {
+            return Parsed.badRequest("maxErrors must be at least 1");
+        }
+
+        //An explicit format wins over the Accept header
+        OutcomeFormat outcomeFormat = format != null ? OutcomeFormat.fromName(format) : OutcomeFormat.fromAccept(accept);
+        if (outcomeFormat == null) {
+            return Parsed.badRequest("Unsupported format: " + format);
+        }
+
+        Parsed<PersonSchema> personSchema = schemaOf(schema);
+        if (personSchema.error() != null) {
+            return new Parsed<>(null, personSchema.error());
+        }
+
+        return Parsed.of(new ProcessingOptions(compression, Boolean.TRUE.equals(flag), Boolean.TRUE.equals(checkDuplicates),
+                Boolean.TRUE.equals(incremental), errorBudget, outcomeFormat, personSchema.value()));
+    }
+
+    //The configured layout unless the upload names another
+    private Parsed<PersonSchema> schemaOf(String name) {
+        PersonSchema schema = personSchemas.find(name);
+        return schema != null ? Parsed.of(schema) : Parsed.badRequest("Unknown schema: " + name);
+    }
+
+    /**
+     * Runs the geo restriction check.
+     * @return the response refusing the request, or null if it may go on
+     */
+    private ResponseEntity<?> checkAccess(HttpServletRequest request) {
+        try {
+            geoRestrictionService.checkAccess(request);
+            return null;
+        } catch (AccessDeniedException ex) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+
+    private static void closeQuietly(SpooledUpload upload) {
+        try {
+            upload.close();
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled upload", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", path, e);
+        }
+    }
+
+    /**
+     * The Content-Encoding declared for the file part, falling back to the request's own header.
+     * A request body that was really compressed in transit would fail multipart parsing before reaching us,
+     * so a request-level header here describes the uploaded file.
+     */
+    private static String contentEncoding(HttpServletRequest request, String partName) {
+        if (request instanceof MultipartHttpServletRequest multipart) {
+            HttpHeaders headers = multipart.getMultipartHeaders(partName);
+            if (headers != null && headers.getFirst(HttpHeaders.CONTENT_ENCODING) != null) {
+                return headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+            }
+        }
+        return request.getHeader(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    /**
+     * A request parameter read into its value, or the 400 to answer with if it couldn't be.
+     */
+    private record Parsed<T>(T value, ResponseEntity<?> error) {
+
+        static <T> Parsed<T> of(T value) {
+            return new Parsed<>(value, null);
+        }
+
+        static <T> Parsed<T> badRequest(String message) {
+            return new Parsed<>(null, ResponseEntity.badRequest().body(message));
+        }
+    }
+}
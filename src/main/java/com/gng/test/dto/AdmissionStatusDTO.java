@@ -0,0 +1,21 @@
+package com.gng.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AdmissionStatusDTO {
+    private boolean enabled;
+    private int inFlightRequests;
+    private long inFlightBytes;
+    private long maxInFlightBytes;
+    private int queuedRequests;
+    private long heapLiveBytes;
+    private long heapLimitBytes;
+    private long admitted;
+    private long delayed;
+    private long rejected;
+}
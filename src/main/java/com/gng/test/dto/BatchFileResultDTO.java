@@ -0,0 +1,18 @@
+package com.gng.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchFileResultDTO {
+    private String name;
+    private String status;
+    //The ZIP entry holding the file's outcome file or error list; null when processing failed
+    private String entry;
+    private Integer errorCount;
+    private Boolean errorsTruncated;
+    private String message;
+}
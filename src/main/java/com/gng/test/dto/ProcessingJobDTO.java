@@ -0,0 +1,20 @@
+package com.gng.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProcessingJobDTO {
+    private String id;
+    private String status;
+    private Instant submittedAt;
+    private Instant completedAt;
+    private Integer errorCount;
+    private Boolean errorsTruncated;
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.gng.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionDTO {
+    private String id;
+    private String status;
+    private int receivedParts;
+    private long receivedBytes;
+    private int nextPart;
+    private Integer totalParts;
+    private Integer errorCount;
+    private Boolean errorsTruncated;
+    private String message;
+}
@@ -0,0 +1,120 @@
+package com.gng.test.interceptor;
+
+import com.gng.test.service.AdmissionControlService;
+import com.gng.test.service.AdmissionPermit;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admission control for uploads. It runs as a servlet filter rather than a HandlerInterceptor because by the time
+ * an interceptor runs, the multipart body has already been read; a request turned away here is answered with
+ * a 429 and a Retry-After before any of its upload is taken in.
+ * The permit is released when the request is done, unless the handler took it with {@link #takePermit}
+ * for work that goes on after the request.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".PERMIT";
+
+    private final AdmissionControlService admissionControlService;
+
+    public AdmissionControlFilter(AdmissionControlService admissionControlService) {
+        this.admissionControlService = admissionControlService;
+    }
+
+    /**
+     * Takes over the request's permit, for a job or session that goes on after the request ends.
+     * Whoever takes it closes it once that work is done; the filter no longer does.
+     * @param request the current request
+     * @return the permit, or one that holds nothing if the request didn't go through admission control
+     */
+    public static AdmissionPermit takePermit(HttpServletRequest request) {
+        AdmissionPermit permit = (AdmissionPermit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit == null) return AdmissionPermit.NONE;
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        return permit;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        //A request without a body, such as the start of an upload session, carries none of the upload it goes on
+        //to process, so it is charged like an upload of unknown length
+        long contentLength = request.getContentLengthLong();
+        AdmissionPermit permit;
+        try {
+            permit = admissionControlService.admit(contentLength > 0 ? contentLength : -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        if (permit == null) {
+            logger.warn("Upload turned away, not enough memory to process it now");
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControlService.getRetryAfterSeconds()));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many files are being processed, try again later");
+            return;
+        }
+
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        boolean handedOff = false;
+        try {
+            chain.doFilter(request, response);
+            //A streamed outcome is still being written when the handler returns, so the permit is kept until it is sent
+            if (request.isAsyncStarted() && request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+                request.getAsyncContext().addListener(new ReleasingListener(permit));
+                handedOff = true;
+            }
+        } finally {
+            //A permit the handler took is released by the job or session it was handed to
+            if (!handedOff && request.getAttribute(PERMIT_ATTRIBUTE) != null) permit.close();
+        }
+    }
+
+    //Both onError and onTimeout are followed by onComplete; the permit ignores the second close
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final AdmissionPermit permit;
+
+        ReleasingListener(AdmissionPermit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.gng.test.model.GeoInfo;
 import com.gng.test.repository.ApiCallLogRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -18,25 +19,32 @@ import java.time.Instant;
 public class ApiCallLoggingInterceptor implements HandlerInterceptor {
 
     private final ApiCallLogRepository apiCallLogRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final String ipApiBaseUrl;
 
-    // ThreadLocal to store request start time per request thread
-    private final ThreadLocal<Long> startTime = new ThreadLocal<>();
+    // Request attribute holding the start time; unlike a ThreadLocal it survives the async dispatch of a streamed response
+    private static final String START_TIME_ATTRIBUTE = ApiCallLoggingInterceptor.class.getName() + ".startTime";
 
-    public ApiCallLoggingInterceptor(ApiCallLogRepository apiCallLogRepository) {
+    public ApiCallLoggingInterceptor(ApiCallLogRepository apiCallLogRepository,
+                                     RestTemplate restTemplate,
+                                     @Value("${ip-api.base.url:http://ip-api.com/json/}") String ipApiBaseUrl) {
         this.apiCallLogRepository = apiCallLogRepository;
+        this.restTemplate = restTemplate;
+        this.ipApiBaseUrl = ipApiBaseUrl;
     }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        startTime.set(System.currentTimeMillis());
+        // Only the first dispatch starts the clock
+        if (request.getAttribute(START_TIME_ATTRIBUTE) == null) {
+            request.setAttribute(START_TIME_ATTRIBUTE, System.currentTimeMillis());
+        }
         return true; // continue processing
     }
 
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws UnknownHostException {
-        long duration = System.currentTimeMillis() - startTime.get();
-        startTime.remove();
+        long duration = System.currentTimeMillis() - (Long) request.getAttribute(START_TIME_ATTRIBUTE);
 
         String clientIp = getClientIp(request);
         String country = null;
@@ -45,7 +53,7 @@ public class ApiCallLoggingInterceptor implements HandlerInterceptor {
         //Lookup GeoInfo
         try {
             GeoInfo geoInfo = restTemplate.getForObject(
-                    "http://ip-api.com/json/" + clientIp + "?fields=514",
+                    ipApiBaseUrl + clientIp + "?fields=514",
                     GeoInfo.class
             );
             if (geoInfo != null) {
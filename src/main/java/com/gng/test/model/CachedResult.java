@@ -0,0 +1,25 @@
+package com.gng.test.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A response body kept by the result cache, either in memory or in a file of the disk tier.
+ * @param valid true for an outcome file, false for an error report
+ * @param errorsTruncated whether the error report stopped at maxErrors
+ * @param content the body, or null if it is kept on disk
+ * @param file the file holding the body, or null if it is kept in memory
+ * @param size the length of the body in bytes
+ */
+public record CachedResult(boolean valid, boolean errorsTruncated, byte[] content, Path file, long size) {
+
+    public void writeTo(OutputStream out) throws IOException {
+        if (content != null) {
+            out.write(content);
+        } else {
+            Files.copy(file, out);
+        }
+    }
+}
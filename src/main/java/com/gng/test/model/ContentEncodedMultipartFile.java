@@ -0,0 +1,77 @@
+package com.gng.test.model;
+
+import com.gng.test.parser.Compression;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * A MultipartFile carrying the compression declared for it by the client (e.g. through the part's
+ * Content-Encoding header), which can't be sniffed for raw deflate. Size and bytes are the compressed ones.
+ */
+public class ContentEncodedMultipartFile implements MultipartFile {
+
+    private final MultipartFile file;
+    private final Compression compression;
+
+    public ContentEncodedMultipartFile(MultipartFile file, Compression compression) {
+        this.file = file;
+        this.compression = compression;
+    }
+
+    public MultipartFile getFile() {
+        return file;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return file.getOriginalFilename();
+    }
+
+    @Override
+    public String getContentType() {
+        return file.getContentType();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return file.isEmpty();
+    }
+
+    @Override
+    public long getSize() {
+        return file.getSize();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return file.getBytes();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return file.getInputStream();
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        file.transferTo(dest);
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        file.transferTo(dest);
+    }
+}
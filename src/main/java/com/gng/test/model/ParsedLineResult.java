@@ -1,15 +1,52 @@
 package com.gng.test.model;
 
-import lombok.AllArgsConstructor;
+import com.gng.test.parser.Utf8;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
-@AllArgsConstructor
+import java.nio.ByteBuffer;
+
 @Getter
-@Setter
 public class ParsedLineResult {
     private final int lineNumber;
-    private final String rawLine;
     private final PersonRecord record;
     private final String parseError;
-}
\ No newline at end of file
+
+    //The raw line is either given, or kept as a span of the parsed buffer and only decoded when asked for;
+    //in practice that is only ever for error lines
+    private final String rawLine;
+    @Getter(AccessLevel.NONE)
+    private final ByteBuffer source;
+    @Getter(AccessLevel.NONE)
+    private final int rawStart;
+    @Getter(AccessLevel.NONE)
+    private final int rawLength;
+
+    public ParsedLineResult(int lineNumber, String rawLine, PersonRecord record, String parseError) {
+        this.lineNumber = lineNumber;
+        this.rawLine = rawLine;
+        this.record = record;
+        this.parseError = parseError;
+        this.source = null;
+        this.rawStart = 0;
+        this.rawLength = 0;
+    }
+
+    public ParsedLineResult(int lineNumber, ByteBuffer source, int rawStart, int rawLength, PersonRecord record, String parseError) {
+        this.lineNumber = lineNumber;
+        this.rawLine = null;
+        this.record = record;
+        this.parseError = parseError;
+        this.source = source;
+        this.rawStart = rawStart;
+        this.rawLength = rawLength;
+    }
+
+    /**
+     * @return the line as it appeared in the file, decoded on every call when the line is kept as a span
+     */
+    public String getRawLine() {
+        if (rawLine != null || source == null) return rawLine;
+        return Utf8.decode(source, rawStart, rawStart + rawLength);
+    }
+}
@@ -0,0 +1,327 @@
+package com.gng.test.model;
+
+import com.gng.test.parser.Utf8;
+import com.gng.test.parser.ValueDictionary;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Struct-of-arrays form of a run of parsed lines, all pointing into one shared byte buffer.
+ * <p>
+ * Speeds live in primitive columns and text fields are kept as [start, end) offsets into the buffer,
+ * so a batch of a million rows is a handful of arrays rather than millions of objects. Rows are kept in
+ * line order and include lines that failed to parse; {@link #parseError(int)} tells them apart.
+ * Strings and PersonRecord objects are only created when a caller asks for them.
+ * <p>
+ * Rows that parsed but failed validation are flagged in a BitSet, with their messages kept in row order,
+ * so consumers can classify every row in a single walk.
+ * <p>
+ * Low-cardinality columns can additionally be dictionary-coded: the row stores an int code and
+ * {@link #text(int, int)} returns the dictionary's shared String instead of decoding a new one.
+ */
+public class PersonRecordBatch {
+
+    public static final int UUID = 0;
+    public static final int ID = 1;
+    public static final int NAME = 2;
+    public static final int LIKES = 3;
+    public static final int TRANSPORT = 4;
+    public static final int TEXT_COLUMNS = 5;
+
+    private final ByteBuffer buffer;
+    private int size;
+    //Added to every stored line number; see withLineOffset
+    private int lineOffset;
+
+    private int[] lineNumbers;
+    private int[] lineStarts;
+    private int[] lineEnds;
+    private int[] textStarts;
+    private int[] textEnds;
+    private double[] avgSpeeds;
+    private double[] topSpeeds;
+    private String[] parseErrors;
+    private final ValueDictionary[] dictionaries;
+    private final int[][] codes;
+
+    //Allocated with the first violation; most batches never need them
+    private BitSet invalidRows;
+    private int[] violationRows;
+    private String[] violationMessages;
+    private int violationCount;
+
+    public PersonRecordBatch(ByteBuffer buffer, int expectedRows) {
+        this(buffer, expectedRows, null);
+    }
+
+    /**
+     * @param dictionaries per text column, the dictionary its values are coded against, or null for plain columns;
+     *                     the array itself may be null when no column is coded
+     */
+    public PersonRecordBatch(ByteBuffer buffer, int expectedRows, ValueDictionary[] dictionaries) {
+        int capacity = Math.max(expectedRows, 16);
+        this.buffer = buffer;
+        this.dictionaries = dictionaries;
+        this.codes = new int[TEXT_COLUMNS][];
+        if (dictionaries != null) {
+            for (int column = 0; column < TEXT_COLUMNS; column++) {
+                if (dictionaries[column] != null) codes[column] = new int[capacity];
+            }
+        }
+        this.lineNumbers = new int[capacity];
+        this.lineStarts = new int[capacity];
+        this.lineEnds = new int[capacity];
+        this.textStarts = new int[capacity * TEXT_COLUMNS];
+        this.textEnds = new int[capacity * TEXT_COLUMNS];
+        this.avgSpeeds = new double[capacity];
+        this.topSpeeds = new double[capacity];
+    }
+
+    /**
+     * A view sharing every column of the other batch; it must not be appended to.
+     */
+    private PersonRecordBatch(PersonRecordBatch other, int lineOffset) {
+        this.buffer = other.buffer;
+        this.size = other.size;
+        this.lineOffset = lineOffset;
+        this.lineNumbers = other.lineNumbers;
+        this.lineStarts = other.lineStarts;
+        this.lineEnds = other.lineEnds;
+        this.textStarts = other.textStarts;
+        this.textEnds = other.textEnds;
+        this.avgSpeeds = other.avgSpeeds;
+        this.topSpeeds = other.topSpeeds;
+        this.parseErrors = other.parseErrors;
+        this.dictionaries = other.dictionaries;
+        this.codes = other.codes;
+        this.invalidRows = other.invalidRows;
+        this.violationRows = other.violationRows;
+        this.violationMessages = other.violationMessages;
+        this.violationCount = other.violationCount;
+    }
+
+    /**
+     * A read-only view of this batch with every line number moved down by {@code offset}; no column is copied.
+     * A chunk parsed on its own is numbered from line 1, so this places its batch wherever the chunk sits in a file.
+     * The batch itself must not be appended to afterwards.
+     */
+    public PersonRecordBatch withLineOffset(int offset) {
+        return new PersonRecordBatch(this, lineOffset + offset);
+    }
+
+    /**
+     * Appends a parsed record; its text columns are set afterwards with {@link #setText}.
+     * @return the row index
+     */
+    public int addRecord(int lineNumber, int lineStart, int lineEnd, double avgSpeed, double topSpeed) {
+        int row = addRow(lineNumber, lineStart, lineEnd);
+        avgSpeeds[row] = avgSpeed;
+        topSpeeds[row] = topSpeed;
+        return row;
+    }
+
+    /**
+     * Appends a line that could not be parsed.
+     * @return the row index
+     */
+    public int addParseError(int lineNumber, int lineStart, int lineEnd, String parseError) {
+        int row = addRow(lineNumber, lineStart, lineEnd);
+        if (parseErrors == null) {
+            parseErrors = new String[lineNumbers.length];
+        }
+        parseErrors[row] = parseError;
+        return row;
+    }
+
+    public void setText(int row, int column, int start, int end) {
+        textStarts[row * TEXT_COLUMNS + column] = start;
+        textEnds[row * TEXT_COLUMNS + column] = end;
+    }
+
+    /**
+     * @return the dictionary the column is coded against, or null if it is a plain column
+     */
+    public ValueDictionary dictionary(int column) {
+        return dictionaries == null ? null : dictionaries[column];
+    }
+
+    /**
+     * Records the dictionary code of a coded column; -1 means the value is not in the dictionary
+     * and is decoded from its offsets like a plain column.
+     */
+    public void setCode(int row, int column, int code) {
+        codes[column][row] = code;
+    }
+
+    /**
+     * Records a validation violation of a record row. Violations must be added in row order.
+     */
+    public void addViolation(int row, String message) {
+        if (invalidRows == null) {
+            invalidRows = new BitSet(lineNumbers.length);
+            violationRows = new int[16];
+            violationMessages = new String[16];
+        } else if (violationCount == violationRows.length) {
+            violationRows = Arrays.copyOf(violationRows, violationCount * 2);
+            violationMessages = Arrays.copyOf(violationMessages, violationCount * 2);
+        }
+        invalidRows.set(row);
+        violationRows[violationCount] = row;
+        violationMessages[violationCount] = message;
+        violationCount++;
+    }
+
+    /**
+     * @return true if the row parsed but has validation violations
+     */
+    public boolean isInvalid(int row) {
+        return invalidRows != null && invalidRows.get(row);
+    }
+
+    public int violationCount() {
+        return violationCount;
+    }
+
+    /**
+     * @return the row of the i-th violation; rows are non-decreasing in i
+     */
+    public int violationRow(int i) {
+        return violationRows[i];
+    }
+
+    public String violationMessage(int i) {
+        return violationMessages[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int lineNumber(int row) {
+        return lineNumbers[row] + lineOffset;
+    }
+
+    public String parseError(int row) {
+        return parseErrors == null ? null : parseErrors[row];
+    }
+
+    public boolean hasRecord(int row) {
+        return parseError(row) == null;
+    }
+
+    public String rawLine(int row) {
+        return Utf8.decode(buffer, lineStarts[row], lineEnds[row]);
+    }
+
+    public int textStart(int row, int column) {
+        return textStarts[row * TEXT_COLUMNS + column];
+    }
+
+    public int textEnd(int row, int column) {
+        return textEnds[row * TEXT_COLUMNS + column];
+    }
+
+    public String text(int row, int column) {
+        int[] columnCodes = codes[column];
+        if (columnCodes != null && columnCodes[row] >= 0) {
+            return dictionaries[column].value(columnCodes[row]);
+        }
+        return Utf8.decode(buffer, textStart(row, column), textEnd(row, column));
+    }
+
+    public String uuid(int row) {
+        return text(row, UUID);
+    }
+
+    public String id(int row) {
+        return text(row, ID);
+    }
+
+    public String name(int row) {
+        return text(row, NAME);
+    }
+
+    public String likes(int row) {
+        return text(row, LIKES);
+    }
+
+    public String transport(int row) {
+        return text(row, TRANSPORT);
+    }
+
+    public double avgSpeed(int row) {
+        return avgSpeeds[row];
+    }
+
+    public double topSpeed(int row) {
+        return topSpeeds[row];
+    }
+
+    /**
+     * Materializes the row as a PersonRecord.
+     * @return the record, or null if the row is a parse error
+     */
+    public PersonRecord toRecord(int row) {
+        if (!hasRecord(row)) return null;
+
+        return PersonRecord.builder()
+                .uuid(uuid(row))
+                .id(id(row))
+                .name(name(row))
+                .likes(likes(row))
+                .transport(transport(row))
+                .avgSpeed(avgSpeed(row))
+                .topSpeed(topSpeed(row))
+                .build();
+    }
+
+    /**
+     * Materializes the row as a ParsedLineResult; its raw line stays a span of this batch's buffer until asked for.
+     */
+    public ParsedLineResult toParsedLine(int row) {
+        return new ParsedLineResult(lineNumber(row), buffer, lineStarts[row], lineEnds[row] - lineStarts[row],
+                toRecord(row), parseError(row));
+    }
+
+    /**
+     * Rough heap footprint of the batch, buffer included, for weighing it in a cache.
+     */
+    public long estimatedBytes() {
+        long perRow = 3L * Integer.BYTES + 2L * Double.BYTES + 2L * TEXT_COLUMNS * Integer.BYTES + Long.BYTES;
+        return buffer.capacity() + (long) lineNumbers.length * perRow + violationCount * 48L;
+    }
+
+    private int addRow(int lineNumber, int lineStart, int lineEnd) {
+        if (size == lineNumbers.length) {
+            grow();
+        }
+        int row = size++;
+        lineNumbers[row] = lineNumber;
+        lineStarts[row] = lineStart;
+        lineEnds[row] = lineEnd;
+        return row;
+    }
+
+    private void grow() {
+        int capacity = lineNumbers.length * 2;
+        lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+        lineStarts = Arrays.copyOf(lineStarts, capacity);
+        lineEnds = Arrays.copyOf(lineEnds, capacity);
+        textStarts = Arrays.copyOf(textStarts, capacity * TEXT_COLUMNS);
+        textEnds = Arrays.copyOf(textEnds, capacity * TEXT_COLUMNS);
+        avgSpeeds = Arrays.copyOf(avgSpeeds, capacity);
+        topSpeeds = Arrays.copyOf(topSpeeds, capacity);
+        if (parseErrors != null) {
+            parseErrors = Arrays.copyOf(parseErrors, capacity);
+        }
+        for (int column = 0; column < TEXT_COLUMNS; column++) {
+            if (codes[column] != null) codes[column] = Arrays.copyOf(codes[column], capacity);
+        }
+    }
+}
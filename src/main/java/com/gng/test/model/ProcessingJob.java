@@ -0,0 +1,77 @@
+package com.gng.test.model;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * An upload processed in the background. Its state is written by the job thread and read by request threads.
+ */
+@Getter
+public class ProcessingJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        /**
+         * Every line was a valid record; the result is the outcome file.
+         */
+        SUCCEEDED,
+        /**
+         * The file had parse or validation errors; the result is the error list.
+         */
+        INVALID,
+        /**
+         * Processing itself failed; there is no result.
+         */
+        FAILED
+    }
+
+    private final String id;
+    private final ProcessingOptions options;
+    private final Instant submittedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant completedAt;
+    private volatile Path resultFile;
+    private volatile int errorCount;
+    private volatile boolean errorsTruncated;
+    private volatile String message;
+
+    public ProcessingJob(String id, ProcessingOptions options) {
+        this.id = id;
+        this.options = options;
+        this.submittedAt = Instant.now();
+    }
+
+    public boolean isDone() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    public void started() {
+        status = Status.RUNNING;
+    }
+
+    public void succeeded(Path outcomeFile) {
+        resultFile = outcomeFile;
+        complete(Status.SUCCEEDED);
+    }
+
+    public void invalid(Path errorsFile, int errorCount, boolean errorsTruncated) {
+        this.resultFile = errorsFile;
+        this.errorCount = errorCount;
+        this.errorsTruncated = errorsTruncated;
+        complete(Status.INVALID);
+    }
+
+    public void failed(String message) {
+        this.message = message;
+        complete(Status.FAILED);
+    }
+
+    //Written last, so a reader that sees the final status also sees the result
+    private void complete(Status finalStatus) {
+        completedAt = Instant.now();
+        status = finalStatus;
+    }
+}
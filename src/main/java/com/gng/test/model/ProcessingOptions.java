@@ -0,0 +1,24 @@
+package com.gng.test.model;
+
+import com.gng.test.output.OutcomeFormat;
+import com.gng.test.parser.Compression;
+import com.gng.test.parser.PersonSchema;
+
+/**
+ * How one upload is to be processed, as requested on /process.
+ * @param compression how the upload itself is encoded
+ * @param validate whether records are validated (flag=true)
+ * @param checkDuplicates whether a repeated uuid is an error
+ * @param incremental whether chunks parsed before are reused; it doesn't change the outcome
+ * @param maxErrors the error budget; processing stops once it is exceeded
+ * @param format the format of the outcome file
+ * @param schema the column layout of the upload (schema=feed), or null for the configured one
+ */
+public record ProcessingOptions(Compression compression,
+                                boolean validate,
+                                boolean checkDuplicates,
+                                boolean incremental,
+                                int maxErrors,
+                                OutcomeFormat format,
+                                PersonSchema schema) {
+}
@@ -0,0 +1,9 @@
+package com.gng.test.model;
+
+/**
+ * Identifies the result of one upload: the same bytes processed with the same options always give the same response.
+ * @param sha256 hex SHA-256 of the upload exactly as it was received, before any decompression
+ * @param options everything the request asked for that changes the response
+ */
+public record ResultCacheKey(String sha256, ProcessingOptions options) {
+}
@@ -0,0 +1,41 @@
+package com.gng.test.model;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An upload for the duration of a request. When the content was spooled to a file we own,
+ * closing the upload deletes that file; otherwise closing is a no-op.
+ */
+public class SpooledUpload implements AutoCloseable {
+
+    private final MultipartFile file;
+    private final Path spoolFile;
+
+    private SpooledUpload(MultipartFile file, Path spoolFile) {
+        this.file = file;
+        this.spoolFile = spoolFile;
+    }
+
+    public static SpooledUpload inPlace(MultipartFile file) {
+        return new SpooledUpload(file, null);
+    }
+
+    public static SpooledUpload spooled(PathMultipartFile file) {
+        return new SpooledUpload(file, file.getPath());
+    }
+
+    public MultipartFile getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spoolFile != null) {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.gng.test.model;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+/**
+ * The parts of an UploadSession read back to back as one file, while they are still arriving.
+ * Reads block until the next part is in, so a parse of this file keeps pace with the upload; a line cut
+ * in two by a part boundary is simply read on from the next part. The size is unknown, so it is -1.
+ */
+public class UploadPartsMultipartFile implements MultipartFile {
+
+    private final UploadSession session;
+    private final Duration idleTimeout;
+
+    /**
+     * @param idleTimeout how long a read waits without any part arriving before it fails
+     */
+    public UploadPartsMultipartFile(UploadSession session, Duration idleTimeout) {
+        this.session = session;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return session.getId();
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public long getSize() {
+        return -1;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * A new stream from the first part; each call reads the parts again.
+     */
+    @Override
+    public InputStream getInputStream() {
+        return new PartsInputStream();
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        try (InputStream in = getInputStream()) {
+            Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private final class PartsInputStream extends InputStream {
+
+        private int nextPart = 1;
+        private InputStream current;
+        private boolean eof;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            while (!eof) {
+                if (current == null) {
+                    Path part = session.awaitPart(nextPart, idleTimeout);
+                    if (part == null) {
+                        eof = true;
+                        break;
+                    }
+                    current = Files.newInputStream(part);
+                    nextPart++;
+                }
+
+                int read = current.read(b, off, len);
+                if (read >= 0) return read;
+
+                current.close();
+                current = null;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            eof = true;
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.gng.test.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A resumable upload sent as numbered parts, from 1. Each part is kept as a file in the session directory
+ * and is parsed as soon as all parts before it are in, so little is left to do once the last part arrives.
+ * Parts may arrive in any order and a part can be sent again if its request failed; once received it doesn't change.
+ * The parse and its result are tracked by the session's ProcessingJob, which has the same id.
+ * Part state is written by request threads and read by the session's parse thread, under one lock.
+ */
+public class UploadSession {
+
+    private final String id;
+    private final ProcessingJob job;
+    private final Path dir;
+
+    //A lock rather than synchronized, so a waiting virtual thread doesn't pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final BitSet parts = new BitSet();
+    private long receivedBytes;
+    private int totalParts = -1;
+    private boolean aborted;
+    private boolean finished;
+    private long lastActivity = System.nanoTime();
+
+    public UploadSession(String id, ProcessingOptions options, Path dir) {
+        this.id = id;
+        this.job = new ProcessingJob(id, options);
+        this.dir = dir;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ProcessingJob getJob() {
+        return job;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Path partFile(int part) {
+        return dir.resolve("part-" + part);
+    }
+
+    /**
+     * Moves a fully received part into place.
+     * @param receivedFile the part's content, in the session directory
+     * @return false if the part had already been received, in which case receivedFile is left alone
+     */
+    public boolean addPart(int part, Path receivedFile, long size) throws IOException {
+        lock.lock();
+        try {
+            if (parts.get(part)) return false;
+
+            Files.move(receivedFile, partFile(part), StandardCopyOption.ATOMIC_MOVE);
+            parts.set(part);
+            receivedBytes += size;
+            touch();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasPart(int part) {
+        lock.lock();
+        try {
+            return parts.get(part);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getReceivedParts() {
+        lock.lock();
+        try {
+            return parts.cardinality();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReceivedBytes() {
+        lock.lock();
+        try {
+            return receivedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the lowest part not received yet
+     */
+    public int getNextPart() {
+        lock.lock();
+        try {
+            return parts.nextClearBit(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of parts, or -1 until the upload is completed
+     */
+    public int getTotalParts() {
+        lock.lock();
+        try {
+            return totalParts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Declares the upload complete at totalParts parts, unless some of them are still missing.
+     * @return the missing parts, empty if the upload is now complete
+     * @throws IllegalArgumentException if a part beyond totalParts was received
+     */
+    public List<Integer> complete(int totalParts) {
+        lock.lock();
+        try {
+            if (parts.length() - 1 > totalParts) {
+                throw new IllegalArgumentException("Part " + (parts.length() - 1) + " was received beyond " + totalParts + " parts");
+            }
+
+            List<Integer> missing = new ArrayList<>();
+            for (int part = parts.nextClearBit(1); part <= totalParts; part = parts.nextClearBit(part + 1)) {
+                missing.add(part);
+            }
+            if (missing.isEmpty()) {
+                this.totalParts = totalParts;
+                touch();
+            }
+            return missing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void abort() {
+        lock.lock();
+        try {
+            aborted = true;
+            touch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isAborted() {
+        lock.lock();
+        try {
+            return aborted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a part to be received.
+     * @param idleTimeout how long to wait without any part arriving
+     * @return the part's file, or null if the upload is complete and has fewer parts
+     * @throws IOException if the upload is aborted, or no part arrived within idleTimeout
+     */
+    public Path awaitPart(int part, Duration idleTimeout) throws IOException {
+        lock.lock();
+        try {
+            while (true) {
+                if (aborted) throw new IOException("Upload aborted");
+                if (parts.get(part)) return partFile(part);
+                if (totalParts >= 0 && part > totalParts) return null;
+
+                long idleLeft = idleTimeout.toNanos() - (System.nanoTime() - lastActivity);
+                if (idleLeft <= 0) {
+                    throw new IOException("No part received for " + idleTimeout.toSeconds() + " seconds");
+                }
+                changed.awaitNanos(idleLeft);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for part " + part);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the parse thread once the job is done and its part files are gone.
+     */
+    public void finished() {
+        lock.lock();
+        try {
+            finished = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the parse to finish.
+     * @return whether it finished within the timeout
+     */
+    public boolean awaitFinished(Duration timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            long left = timeout.toNanos();
+            while (!finished && left > 0) {
+                left = changed.awaitNanos(left);
+            }
+            return finished;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Called under the lock
+    private void touch() {
+        lastActivity = System.nanoTime();
+        changed.signalAll();
+    }
+}
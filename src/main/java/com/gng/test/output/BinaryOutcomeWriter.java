@@ -0,0 +1,49 @@
+package com.gng.test.output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the outcome as length-prefixed binary records, all integers big-endian:
+ * <pre>
+ * record    := length:int32 payload           (length = number of payload bytes)
+ * payload   := name:string transport:string top_speed:float64
+ * string    := byteCount:int32 utf8Bytes
+ * </pre>
+ * Records follow each other with no header or trailer, so a reader can skip any record by its length
+ * and the stream can be split at record boundaries.
+ */
+public class BinaryOutcomeWriter implements OutcomeWriter {
+
+    private final DataOutputStream out;
+
+    public BinaryOutcomeWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 8192));
+    }
+
+    @Override
+    public void write(String name, String transport, double topSpeed) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] transportBytes = transport.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(Integer.BYTES + nameBytes.length + Integer.BYTES + transportBytes.length + Double.BYTES);
+        out.writeInt(nameBytes.length);
+        out.write(nameBytes);
+        out.writeInt(transportBytes.length);
+        out.write(transportBytes);
+        out.writeDouble(topSpeed);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.gng.test.output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the outcome as RFC 4180 CSV with a header row, UTF-8 and CRLF line endings.
+ * Values are only quoted when they contain a comma, a quote or a line break.
+ */
+public class CsvOutcomeWriter implements OutcomeWriter {
+
+    private static final String HEADER = "name,transport,top_speed\r\n";
+
+    private final Writer writer;
+
+    public CsvOutcomeWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        writer.write(HEADER);
+    }
+
+    @Override
+    public void write(String name, String transport, double topSpeed) throws IOException {
+        writeValue(name);
+        writer.write(',');
+        writeValue(transport);
+        writer.write(',');
+        writer.write(Double.toString(topSpeed));
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (!needsQuoting(value)) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            //A quote inside a quoted value is escaped by doubling it
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') return true;
+        }
+        return false;
+    }
+}
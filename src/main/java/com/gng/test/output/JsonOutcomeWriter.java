@@ -0,0 +1,38 @@
+package com.gng.test.output;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes the outcome as a single JSON array of objects; whether it is pretty-printed is up to the generator.
+ */
+public class JsonOutcomeWriter implements OutcomeWriter {
+
+    private final JsonGenerator generator;
+
+    public JsonOutcomeWriter(JsonGenerator generator) throws IOException {
+        this.generator = generator;
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void write(String name, String transport, double topSpeed) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeStringField("transport", transport);
+        generator.writeNumberField("top_speed", topSpeed);
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
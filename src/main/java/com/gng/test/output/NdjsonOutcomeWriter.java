@@ -0,0 +1,38 @@
+package com.gng.test.output;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes the outcome as newline-delimited JSON: one compact object per line and no enclosing array,
+ * so the file can be split at any line break and consumed in parallel.
+ */
+public class NdjsonOutcomeWriter implements OutcomeWriter {
+
+    private final JsonGenerator generator;
+
+    public NdjsonOutcomeWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void write(String name, String transport, double topSpeed) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeStringField("transport", transport);
+        generator.writeNumberField("top_speed", topSpeed);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.gng.test.output;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * The formats the outcome file can be downloaded in, picked by name (the {@code format} query parameter)
+ * or by media type (the {@code Accept} header).
+ */
+public enum OutcomeFormat {
+
+    /**
+     * Pretty-printed JSON array; the default, and what {@code application/json} asks for.
+     */
+    JSON("json", MediaType.APPLICATION_JSON, "json") {
+        @Override
+        public OutcomeWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException {
+            JsonGenerator generator = jsonFactory.createGenerator(out);
+            generator.useDefaultPrettyPrinter();
+            return new JsonOutcomeWriter(generator);
+        }
+    },
+    /**
+     * The same JSON array without whitespace. JSON media types can't tell it apart, so it is only chosen by name.
+     */
+    COMPACT_JSON("json-compact", null, "json") {
+        @Override
+        public OutcomeWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException {
+            return new JsonOutcomeWriter(jsonFactory.createGenerator(out));
+        }
+    },
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON, "ndjson") {
+        @Override
+        public OutcomeWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException {
+            return new NdjsonOutcomeWriter(jsonFactory.createGenerator(out));
+        }
+    },
+    CSV("csv", new MediaType("text", "csv"), "csv") {
+        @Override
+        public OutcomeWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException {
+            return new CsvOutcomeWriter(out);
+        }
+    },
+    BINARY("binary", MediaType.APPLICATION_OCTET_STREAM, "bin") {
+        @Override
+        public OutcomeWriter open(OutputStream out, JsonFactory jsonFactory) {
+            return new BinaryOutcomeWriter(out);
+        }
+    };
+
+    private final String formatName;
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    OutcomeFormat(String formatName, MediaType mediaType, String fileExtension) {
+        this.formatName = formatName;
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Starts writing the outcome to the stream.
+     * @param jsonFactory the shared factory the JSON formats create their generator from
+     */
+    public abstract OutcomeWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException;
+
+    /**
+     * The Content-Type of the outcome file.
+     */
+    public MediaType contentType() {
+        return mediaType != null ? mediaType : MediaType.APPLICATION_JSON;
+    }
+
+    public String fileName() {
+        return "OutcomeFile." + fileExtension;
+    }
+
+    /**
+     * @return the format with the given name, case-insensitive, or null if there is none
+     */
+    public static OutcomeFormat fromName(String name) {
+        for (OutcomeFormat format : values()) {
+            if (format.formatName.equalsIgnoreCase(name.trim())) return format;
+        }
+        return null;
+    }
+
+    /**
+     * The format of the most preferred media type in an Accept header that has one.
+     * Wildcards, unknown media types and a missing or malformed header all fall back to {@link #JSON},
+     * as the endpoint always answered with JSON before it had a choice.
+     */
+    public static OutcomeFormat fromAccept(String accept) {
+        if (accept == null || accept.isBlank()) return JSON;
+
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+
+        OutcomeFormat best = JSON;
+        double bestQuality = 0;
+        for (MediaType requested : mediaTypes) {
+            if (requested.isWildcardType() || requested.isWildcardSubtype()) continue;
+
+            //Ties keep the first listed type
+            double quality = requested.getQualityValue();
+            if (quality <= bestQuality) continue;
+
+            for (OutcomeFormat format : values()) {
+                if (format.mediaType != null && format.mediaType.equalsTypeAndSubtype(requested)) {
+                    best = format;
+                    bestQuality = quality;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,19 @@
+package com.gng.test.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams the outcome file one record at a time, in the fields the /process endpoint emits.
+ * Nothing is buffered beyond the underlying stream's own buffer.
+ */
+public interface OutcomeWriter extends Closeable {
+
+    void write(String name, String transport, double topSpeed) throws IOException;
+
+    /**
+     * Writes whatever the format needs after the last record. A writer closed without finishing
+     * leaves the output visibly incomplete rather than well-formed but truncated.
+     */
+    void finish() throws IOException;
+}
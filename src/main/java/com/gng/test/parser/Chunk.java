@@ -0,0 +1,10 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A newline-aligned slice of the input occupying [0, length) of its buffer.
+ * @param firstLineNumber the 1-based file line number of the first line in the chunk
+ */
+public record Chunk(ByteBuffer buffer, int length, int firstLineNumber) {
+}
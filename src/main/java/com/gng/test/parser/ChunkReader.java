@@ -0,0 +1,87 @@
+package com.gng.test.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Cuts an InputStream into independent chunks of at least {@code minChunkBytes}, each ending
+ * right after a '\n' so no line (and no "\r\n" pair) straddles two chunks. Every chunk carries
+ * the number of its first line, so chunks can be parsed in any order and still report exact line numbers.
+ * Each chunk gets its own array because chunks are handed to other threads.
+ */
+public final class ChunkReader implements ChunkSource {
+
+    private final InputStream in;
+    private final int minChunkBytes;
+    private long remainingHint;
+
+    private byte[] pending = new byte[0];
+    private int pendingLength;
+    private int nextLineNumber = 1;
+    private boolean eof;
+
+    /**
+     * @param expectedBytes the expected stream length, used to avoid over-allocating for small inputs; -1 if unknown
+     */
+    public ChunkReader(InputStream in, int minChunkBytes, long expectedBytes) {
+        this.in = in;
+        this.minChunkBytes = minChunkBytes;
+        this.remainingHint = expectedBytes < 0 ? Long.MAX_VALUE / 2 : expectedBytes;
+    }
+
+    @Override
+    public Chunk next() throws IOException {
+        if (eof && pendingLength == 0) return null;
+
+        long wanted = Math.min(minChunkBytes + (minChunkBytes >> 3), remainingHint + 1);
+        byte[] buffer = new byte[(int) Math.max(wanted, pendingLength + 1)];
+        System.arraycopy(pending, 0, buffer, 0, pendingLength);
+        int filled = pendingLength;
+        int searchFrom = 0;
+        int cut = -1;
+
+        while (cut < 0) {
+            if (filled >= minChunkBytes) {
+                cut = indexOfNewline(buffer, Math.max(searchFrom, minChunkBytes - 1), filled);
+                if (cut >= 0) break;
+                searchFrom = filled;
+            }
+            if (eof) break;
+
+            if (filled == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, filled);
+                buffer = grown;
+            }
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+            }
+        }
+
+        int length = cut >= 0 ? cut + 1 : filled;
+        remainingHint = Math.max(remainingHint - length, 0);
+
+        //Carry the bytes after the cut over to the next chunk
+        pendingLength = filled - length;
+        if (pending.length < pendingLength) {
+            pending = new byte[pendingLength];
+        }
+        System.arraycopy(buffer, length, pending, 0, pendingLength);
+
+        ByteBuffer view = ByteBuffer.wrap(buffer);
+        Chunk chunk = new Chunk(view, length, nextLineNumber);
+        nextLineNumber += LineScanner.countLines(view, 0, length);
+        return length == 0 ? null : chunk;
+    }
+
+    private static int indexOfNewline(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') return i;
+        }
+        return -1;
+    }
+}
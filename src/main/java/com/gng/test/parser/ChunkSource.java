@@ -0,0 +1,14 @@
+package com.gng.test.parser;
+
+import java.io.IOException;
+
+/**
+ * Produces consecutive newline-aligned chunks of an input, in file order.
+ */
+public interface ChunkSource {
+
+    /**
+     * @return the next chunk, or null once the input is exhausted
+     */
+    Chunk next() throws IOException;
+}
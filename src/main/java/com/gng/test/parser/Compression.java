@@ -0,0 +1,91 @@
+package com.gng.test.parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of an uploaded file and how to stream-decompress it.
+ * Decompression happens on the fly while the parser reads, so the uncompressed content
+ * is never held in full, neither in memory nor on disk.
+ */
+public enum Compression {
+    NONE,
+    GZIP,
+    //zlib-wrapped (RFC 1950) or raw (RFC 1951) deflate; HTTP's "deflate" is used for both in practice
+    DEFLATE;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Maps a Content-Encoding header value.
+     * @return the compression, NONE for a missing or identity encoding, or null if the encoding is not supported
+     */
+    public static Compression fromContentEncoding(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) return NONE;
+
+        return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "identity" -> NONE;
+            case "gzip", "x-gzip" -> GZIP;
+            case "deflate" -> DEFLATE;
+            default -> null;
+        };
+    }
+
+    /**
+     * Maps a part's content type.
+     * @return the compression it implies, or null if it says nothing about compression
+     */
+    public static Compression fromContentType(String contentType) {
+        if (contentType == null) return null;
+
+        String type = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "application/gzip", "application/x-gzip" -> GZIP;
+            case "application/zlib", "application/x-deflate" -> DEFLATE;
+            default -> null;
+        };
+    }
+
+    /**
+     * Detects compression from the first bytes of a stream: gzip's 1F 8B magic, or a zlib header.
+     * Of the zlib headers only the ones zlib itself writes and that can't start a line of text are recognized
+     * (78 01, 78 9C, 78 DA), so plain uploads are never misread; raw deflate has no magic and must be declared.
+     */
+    public static Compression sniff(InputStream in) throws IOException {
+        int first = in.read();
+        int second = in.read();
+        if (first == 0x1F && second == 0x8B) return GZIP;
+        if (first == 0x78 && (second == 0x01 || second == 0x9C || second == 0xDA)) return DEFLATE;
+        return NONE;
+    }
+
+    /**
+     * Wraps a stream so reads return the decompressed bytes; NONE only adds buffering.
+     */
+    public InputStream decode(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> new BufferedInputStream(in, BUFFER_BYTES);
+            //GZIPInputStream also reads concatenated members, as produced by parallel gzip tools
+            case GZIP -> new GZIPInputStream(in, BUFFER_BYTES);
+            case DEFLATE -> {
+                BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_BYTES);
+                buffered.mark(2);
+                boolean wrapped = isZlibHeader(buffered.read(), buffered.read());
+                buffered.reset();
+                yield new InflaterInputStream(buffered, new Inflater(!wrapped), BUFFER_BYTES);
+            }
+        };
+    }
+
+    private static boolean isZlibHeader(int first, int second) {
+        //CM = 8 (deflate), window of at most 32K, and the header checksum
+        return first >= 0 && second >= 0
+                && (first & 0x0F) == 8 && (first >> 4) <= 7
+                && ((first << 8) | second) % 31 == 0;
+    }
+}
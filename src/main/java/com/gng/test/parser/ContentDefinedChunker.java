@@ -0,0 +1,112 @@
+package com.gng.test.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Cuts an InputStream into content-defined chunks that end right after a '\n', so the same run of lines
+ * cuts into the same chunks whatever comes before it, and an edit to a few lines only changes the chunks around it.
+ * <p>
+ * A gear rolling hash runs over the bytes of the chunk; once the chunk is at least {@code minChunkBytes} long,
+ * a byte whose hash has its top bits clear marks an anchor, and the chunk ends at the first '\n' after it.
+ * Each gear step shifts the hash left by one, so its top bits depend on the last 64 bytes only and cut points
+ * fall back into step within a line or two of an edit. On average an anchor turns up {@code avgChunkBytes - minChunkBytes}
+ * bytes past the minimum; a chunk that reaches {@code maxChunkBytes} without one ends at its next '\n'.
+ * <p>
+ * Only '\n' ends a chunk, as with ChunkReader, so a file of bare "\r" lines comes out as a single chunk.
+ * Every chunk gets its own array of exactly its length, since chunks outlive the read when they are cached.
+ */
+public final class ContentDefinedChunker implements ChunkSource {
+
+    //Fixed seed: cut points have to be the same for the same content on every run
+    private static final long[] GEAR = new SplittableRandom(0x5DEECE66DL).longs(256).toArray();
+
+    private final InputStream in;
+    private final int minChunkBytes;
+    private final int maxChunkBytes;
+    private final long anchorMask;
+
+    private byte[] buffer;
+    private int filled;
+    private int nextLineNumber = 1;
+    private boolean eof;
+
+    /**
+     * @param minChunkBytes no anchor is looked for before this many bytes
+     * @param avgChunkBytes the average chunk length to aim for on varied content
+     * @param maxChunkBytes chunks are cut at the first '\n' past this many bytes
+     * @param expectedBytes the expected stream length, used to avoid over-allocating for small inputs; -1 if unknown
+     */
+    public ContentDefinedChunker(InputStream in, int minChunkBytes, int avgChunkBytes, int maxChunkBytes, long expectedBytes) {
+        this.in = in;
+        this.minChunkBytes = minChunkBytes;
+        this.maxChunkBytes = Math.max(maxChunkBytes, minChunkBytes);
+        this.anchorMask = anchorMask(Math.max(avgChunkBytes - minChunkBytes, 1));
+
+        long initial = expectedBytes < 0 ? this.maxChunkBytes : Math.min(this.maxChunkBytes, expectedBytes + 1);
+        this.buffer = new byte[(int) Math.max(initial, 8192)];
+    }
+
+    @Override
+    public Chunk next() throws IOException {
+        long hash = 0;
+        boolean anchored = false;
+        int scanned = 0;
+        int cut = -1;
+
+        while (cut < 0) {
+            for (; scanned < filled; scanned++) {
+                byte b = buffer[scanned];
+                if (b == '\n' && (anchored || scanned + 1 >= maxChunkBytes)) {
+                    cut = scanned + 1;
+                    break;
+                }
+                hash = (hash << 1) + GEAR[b & 0xff];
+                if (!anchored && scanned + 1 >= minChunkBytes && (hash & anchorMask) == 0) {
+                    anchored = true;
+                }
+            }
+            if (cut >= 0) break;
+
+            if (eof) {
+                if (filled == 0) return null;
+                cut = filled;
+                break;
+            }
+            fill();
+        }
+
+        byte[] bytes = Arrays.copyOf(buffer, cut);
+        filled -= cut;
+        System.arraycopy(buffer, cut, buffer, 0, filled);
+
+        ByteBuffer view = ByteBuffer.wrap(bytes);
+        Chunk chunk = new Chunk(view, cut, nextLineNumber);
+        nextLineNumber += LineScanner.countLines(view, 0, cut);
+        return chunk;
+    }
+
+    private void fill() throws IOException {
+        if (filled == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, filled, buffer.length - filled);
+        if (read < 0) {
+            eof = true;
+        } else {
+            filled += read;
+        }
+    }
+
+    /**
+     * The top bits of the hash that must be clear at an anchor: one in 2^bits bytes on average,
+     * with 2^bits the largest power of two not above the wanted spacing.
+     */
+    private static long anchorMask(int spacing) {
+        int bits = 31 - Integer.numberOfLeadingZeros(spacing);
+        return bits == 0 ? 0 : -1L << (Long.SIZE - bits);
+    }
+}
@@ -0,0 +1,172 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses a decimal number straight from a byte range and reports malformed input through
+ * the return value instead of a NumberFormatException.
+ * <p>
+ * Accepts exactly what Double.parseDouble accepts. Numbers with at most 15 significant digits and a
+ * decimal exponent within +/-22 are converted with a single exact multiplication or division, which is
+ * correctly rounded because both operands are exact doubles. Anything else that is well-formed is handed
+ * to Double.parseDouble, which cannot fail at that point. Hexadecimal literals are rare enough that they
+ * are delegated as-is.
+ * Instances hold the last parsed value and are not thread-safe.
+ */
+public final class FastDoubleParser {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_TRACKED_DIGITS = 19;
+
+    private double value;
+
+    /**
+     * Parses bytes [from, to) of the buffer.
+     * @return true if the range holds a valid number, which is then available from {@link #value()}
+     */
+    public boolean parse(ByteBuffer buffer, int from, int to) {
+        while (from < to && Utf8.isTrimmable(buffer.get(from))) from++;
+        while (to > from && Utf8.isTrimmable(buffer.get(to - 1))) to--;
+        if (from == to) return false;
+
+        int i = from;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == to) return false;
+
+        byte lead = buffer.get(i);
+        if (lead == 'N' || lead == 'I') {
+            return parseSpecial(buffer, i, to, negative);
+        }
+        if (lead == '0' && i + 1 < to && (buffer.get(i + 1) | 0x20) == 'x') {
+            return parseFallback(buffer, from, to, true);
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+
+        //Integer part
+        for (; i < to; i++) {
+            int d = buffer.get(i) - '0';
+            if (d < 0 || d > 9) break;
+            digits++;
+            if (mantissa == 0 && d == 0) continue;
+            if (significantDigits < MAX_TRACKED_DIGITS) {
+                mantissa = mantissa * 10 + d;
+            } else {
+                exponent++;
+            }
+            significantDigits++;
+        }
+
+        //Fraction part
+        if (i < to && buffer.get(i) == '.') {
+            for (i++; i < to; i++) {
+                int d = buffer.get(i) - '0';
+                if (d < 0 || d > 9) break;
+                digits++;
+                if (mantissa == 0 && d == 0) {
+                    exponent--;
+                    continue;
+                }
+                if (significantDigits < MAX_TRACKED_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    exponent--;
+                }
+                significantDigits++;
+            }
+        }
+        if (digits == 0) return false;
+
+        //Exponent part
+        if (i < to && (buffer.get(i) | 0x20) == 'e') {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicitExponent = 0;
+            for (; i < to; i++) {
+                int d = buffer.get(i) - '0';
+                if (d < 0 || d > 9) break;
+                if (explicitExponent < 100_000) {
+                    explicitExponent = explicitExponent * 10 + d;
+                }
+            }
+            if (i == exponentStart) return false;
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        //Optional float/double type suffix
+        if (i < to) {
+            int suffix = buffer.get(i) | 0x20;
+            if (suffix == 'f' || suffix == 'd') i++;
+        }
+        if (i != to) return false;
+
+        if (mantissa == 0) {
+            value = negative ? -0.0 : 0.0;
+            return true;
+        }
+        if (significantDigits > MAX_EXACT_DIGITS || exponent < -22 || exponent > 22) {
+            return parseFallback(buffer, from, to, false);
+        }
+
+        double result = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        value = negative ? -result : result;
+        return true;
+    }
+
+    public double value() {
+        return value;
+    }
+
+    private boolean parseSpecial(ByteBuffer buffer, int from, int to, boolean negative) {
+        if (matches(buffer, from, to, "NaN")) {
+            value = Double.NaN;
+            return true;
+        }
+        if (matches(buffer, from, to, "Infinity")) {
+            value = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Only reached with input already known to be well-formed, except for hexadecimal literals.
+     */
+    private boolean parseFallback(ByteBuffer buffer, int from, int to, boolean hexadecimal) {
+        String text = Utf8.decode(buffer, from, to);
+        if (!hexadecimal) {
+            value = Double.parseDouble(text);
+            return true;
+        }
+        try {
+            value = Double.parseDouble(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, int to, String literal) {
+        if (to - from != literal.length()) return false;
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.get(from + i) != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Line counting over a byte range that is already fully in memory.
+ * Terminators are "\n", "\r" and "\r\n", the same set BufferedReader.readLine() accepts.
+ */
+public final class LineScanner {
+
+    private static final long LF = Swar.broadcast((byte) '\n');
+    private static final long CR = Swar.broadcast((byte) '\r');
+
+    private LineScanner() {
+    }
+
+    /**
+     * Counts line terminators in [from, to), treating "\r\n" as one.
+     * A "\r" in the last position is counted as a full terminator.
+     * Runs on the chunk reader's thread ahead of the parallel parse, so it counts eight bytes at a time.
+     */
+    public static int countLines(ByteBuffer buffer, int from, int to) {
+        ByteBuffer words = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int lines = 0;
+        int i = from;
+        boolean afterCr = false;
+
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = words.getLong(i);
+            long lf = Swar.matches(word, LF);
+            long cr = Swar.matches(word, CR);
+
+            //Every terminator byte counts, except the '\n' of a "\r\n" pair, which may straddle two words
+            long pairs = (cr << 8) & lf;
+            if (afterCr) pairs |= lf & 0x80L;
+            lines += Long.bitCount(lf | cr) - Long.bitCount(pairs);
+            afterCr = cr < 0;
+        }
+
+        for (; i < to; i++) {
+            byte b = words.get(i);
+            if (b == '\n' && !afterCr || b == '\r') lines++;
+            afterCr = b == '\r';
+        }
+        return lines;
+    }
+}
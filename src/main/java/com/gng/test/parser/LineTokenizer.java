@@ -0,0 +1,116 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a delimited line held in a byte buffer into trimmed field bounds without allocating.
+ * <p>
+ * The field count follows String.split semantics: trailing empty fields are not counted,
+ * so "a|b|" has two fields. Bounds are only recorded for the first {@code maxFields} fields;
+ * the count is still exact when a line has more, so callers can reject it without decoding anything.
+ * Fields are trimmed like String.trim unless the trim mask says otherwise.
+ * Instances are reusable but not thread-safe.
+ */
+public final class LineTokenizer {
+
+    private final byte delimiter;
+    private final int[] starts;
+    private final int[] ends;
+    private final boolean[] trim;
+
+    private int field;
+    private int fieldStart;
+    private int count;
+
+    public LineTokenizer(char delimiter, int maxFields) {
+        this(delimiter, maxFields, null);
+    }
+
+    /**
+     * @param trim per field, whether to trim it; null trims every field
+     */
+    public LineTokenizer(char delimiter, int maxFields, boolean[] trim) {
+        if (delimiter > 0x7F) {
+            throw new IllegalArgumentException("Delimiter must be a single-byte ASCII character: " + delimiter);
+        }
+        this.delimiter = (byte) delimiter;
+        this.starts = new int[maxFields];
+        this.ends = new int[maxFields];
+        this.trim = trim;
+    }
+
+    /**
+     * Tokenizes bytes [from, to) of the buffer.
+     * @return the number of fields, excluding trailing empty ones
+     */
+    public int tokenize(ByteBuffer buffer, int from, int to) {
+        begin(from);
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == delimiter) delimiterAt(i);
+        }
+        return finish(buffer, to);
+    }
+
+    /**
+     * Starts a line at {@code from}, for callers that already know where its delimiters are
+     * (e.g. from a StructuralIndex); report them in order with {@link #delimiterAt} and end with {@link #finish}.
+     */
+    public void begin(int from) {
+        field = 0;
+        fieldStart = from;
+        count = 0;
+    }
+
+    public void delimiterAt(int position) {
+        endField(position);
+    }
+
+    /**
+     * Ends the line at {@code to} and trims the recorded fields.
+     * @return the number of fields, excluding trailing empty ones
+     */
+    public int finish(ByteBuffer buffer, int to) {
+        endField(to);
+
+        int recorded = Math.min(count, starts.length);
+        for (int f = 0; f < recorded; f++) {
+            if (trim == null || trim[f]) trim(buffer, f);
+        }
+        return count;
+    }
+
+    private void endField(int position) {
+        if (field < starts.length) {
+            starts[field] = fieldStart;
+            ends[field] = position;
+        }
+        field++;
+
+        //Trailing empty fields are dropped, exactly like String.split does
+        if (position > fieldStart) {
+            count = field;
+        }
+        fieldStart = position + 1;
+    }
+
+    public int start(int field) {
+        return starts[field];
+    }
+
+    public int end(int field) {
+        return ends[field];
+    }
+
+    public String decode(ByteBuffer buffer, int field) {
+        return Utf8.decode(buffer, starts[field], ends[field]);
+    }
+
+    private void trim(ByteBuffer buffer, int field) {
+        int start = starts[field];
+        int end = ends[field];
+        while (start < end && Utf8.isTrimmable(buffer.get(start))) start++;
+        while (end > start && Utf8.isTrimmable(buffer.get(end - 1))) end--;
+        starts[field] = start;
+        ends[field] = end;
+    }
+}
@@ -0,0 +1,93 @@
+package com.gng.test.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Serves newline-aligned chunks straight out of a memory-mapped file, without copying.
+ * The file is mapped in windows of at most 1 GB (a MappedByteBuffer is int-indexed); each window
+ * is trimmed back to its last '\n' and the next window is mapped from there.
+ */
+public final class MappedChunkReader implements ChunkSource {
+
+    static final int MAX_WINDOW_BYTES = 1 << 30;
+
+    private final FileChannel channel;
+    private final int chunkBytes;
+    private final int maxWindowBytes;
+    private final long fileSize;
+
+    private MappedByteBuffer window;
+    private long windowOffset;
+    private int windowEnd;
+    private int position;
+    private int nextLineNumber = 1;
+
+    public MappedChunkReader(FileChannel channel, int chunkBytes) throws IOException {
+        this(channel, chunkBytes, MAX_WINDOW_BYTES);
+    }
+
+    MappedChunkReader(FileChannel channel, int chunkBytes, int maxWindowBytes) throws IOException {
+        this.channel = channel;
+        this.chunkBytes = chunkBytes;
+        this.maxWindowBytes = maxWindowBytes;
+        this.fileSize = channel.size();
+    }
+
+    @Override
+    public Chunk next() throws IOException {
+        if ((window == null || position >= windowEnd) && !mapNextWindow()) {
+            return null;
+        }
+
+        int cut = windowEnd;
+        if (windowEnd - position > chunkBytes) {
+            int newline = indexOfNewline(window, position + chunkBytes - 1, windowEnd);
+            if (newline >= 0) cut = newline + 1;
+        }
+
+        int length = cut - position;
+        ByteBuffer slice = window.slice(position, length);
+        Chunk chunk = new Chunk(slice, length, nextLineNumber);
+        nextLineNumber += LineScanner.countLines(slice, 0, length);
+        position = cut;
+        return chunk;
+    }
+
+    private boolean mapNextWindow() throws IOException {
+        long start = window == null ? 0 : windowOffset + windowEnd;
+        if (start >= fileSize) return false;
+
+        int length = (int) Math.min(maxWindowBytes, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowOffset = start;
+        position = 0;
+        windowEnd = length;
+
+        //Not the last window: stop after the last complete line, the rest is mapped again next time
+        if (start + length < fileSize) {
+            int lastNewline = lastIndexOfNewline(window, length);
+            if (lastNewline < 0) {
+                throw new IOException("Line longer than " + maxWindowBytes + " bytes at offset " + start);
+            }
+            windowEnd = lastNewline + 1;
+        }
+        return true;
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOfNewline(ByteBuffer buffer, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,148 @@
+package com.gng.test.parser;
+
+import com.gng.test.model.PersonRecordBatch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses delimited lines straight from their bytes into a PersonRecordBatch, following a compiled PersonSchema.
+ * Nothing is decoded here: text fields are recorded as offsets and the speeds as primitives,
+ * and columns with a dictionary are also looked up and stored as codes. An optional RowValidator
+ * checks each record in the same pass.
+ * Instances hold scratch state and are not thread-safe; use one per parse. The dictionaries are
+ * thread-safe and may be shared by the parsers of one parse.
+ */
+public final class PersonLineParser {
+
+    private final PersonSchema schema;
+    private final LineTokenizer tokenizer;
+    private final StructuralIndex index;
+    private final FastDoubleParser numberParser = new FastDoubleParser();
+    private final ValueDictionary[] dictionaries;
+    private final RowValidator validator;
+    private final int fieldCount;
+    private final int[] textFields;
+    private final int avgSpeedField;
+    private final int topSpeedField;
+
+    public PersonLineParser() {
+        this(PersonSchema.DEFAULT, null);
+    }
+
+    public PersonLineParser(PersonSchema schema, ValueDictionary[] dictionaries) {
+        this(schema, dictionaries, null);
+    }
+
+    /**
+     * @param schema the column layout of the lines
+     * @param dictionaries per text column of PersonRecordBatch, the dictionary to code it against or null
+     * @param validator run on every record row as soon as it is parsed, or null to only parse
+     */
+    public PersonLineParser(PersonSchema schema, ValueDictionary[] dictionaries, RowValidator validator) {
+        this.schema = schema;
+        this.tokenizer = new LineTokenizer(schema.delimiter(), schema.fieldCount(), schema.trim());
+        this.index = new StructuralIndex(schema.delimiter());
+        this.dictionaries = dictionaries;
+        this.validator = validator;
+        this.fieldCount = schema.fieldCount();
+        this.textFields = new int[PersonRecordBatch.TEXT_COLUMNS];
+        for (int column = 0; column < textFields.length; column++) {
+            textFields[column] = schema.textField(column);
+        }
+        this.avgSpeedField = schema.avgSpeedField();
+        this.topSpeedField = schema.topSpeedField();
+    }
+
+    /**
+     * Parses every line of a chunk into a new batch over the chunk's buffer.
+     * Line breaks and delimiters come from a StructuralIndex, so the bytes between them are never looked at
+     * here; line terminators follow LineScanner ("\n", "\r" and "\r\n").
+     */
+    public PersonRecordBatch parseChunk(Chunk chunk) {
+        ByteBuffer buffer = chunk.buffer();
+        int length = chunk.length();
+        PersonRecordBatch batch = new PersonRecordBatch(buffer, length / 64, dictionaries);
+
+        index.reset(buffer, 0, length);
+        int lineNumber = chunk.firstLineNumber();
+        int lineStart = 0;
+        tokenizer.begin(lineStart);
+
+        int position;
+        while ((position = index.next()) >= 0) {
+            byte b = buffer.get(position);
+            if (b != '\n' && b != '\r') {
+                tokenizer.delimiterAt(position);
+                continue;
+            }
+
+            parseTokenized(batch, lineStart, position, lineNumber++, tokenizer.finish(buffer, position));
+
+            //The '\n' of a "\r\n" pair is always the next structural position
+            lineStart = position + 1;
+            if (b == '\r' && lineStart < length && buffer.get(lineStart) == '\n') {
+                index.next();
+                lineStart++;
+            }
+            tokenizer.begin(lineStart);
+        }
+
+        if (lineStart < length) {
+            parseTokenized(batch, lineStart, length, lineNumber, tokenizer.finish(buffer, length));
+        }
+        return batch;
+    }
+
+    /**
+     * Appends the line at [from, to) of the batch's buffer as a record or a parse error.
+     * Blank lines are skipped.
+     */
+    public void parseInto(PersonRecordBatch batch, int from, int to, int lineNumber) {
+        parseTokenized(batch, from, to, lineNumber, tokenizer.tokenize(batch.buffer(), from, to));
+    }
+
+    private void parseTokenized(PersonRecordBatch batch, int from, int to, int lineNumber, int fields) {
+        ByteBuffer buffer = batch.buffer();
+
+        if (fields != fieldCount) {
+            if (fields <= 1 && isBlank(buffer, from, to)) return;
+            batch.addParseError(lineNumber, from, to, schema.fieldCountMessage());
+            return;
+        }
+
+        boolean avgSpeedValid = numberParser.parse(buffer, tokenizer.start(avgSpeedField), tokenizer.end(avgSpeedField));
+        double avgSpeed = numberParser.value();
+        boolean topSpeedValid = numberParser.parse(buffer, tokenizer.start(topSpeedField), tokenizer.end(topSpeedField));
+        double topSpeed = numberParser.value();
+
+        if (!avgSpeedValid || !topSpeedValid) {
+            batch.addParseError(lineNumber, from, to, schema.invalidNumberMessage(avgSpeedValid, topSpeedValid));
+            return;
+        }
+
+        int row = batch.addRecord(lineNumber, from, to, avgSpeed, topSpeed);
+        for (int column = 0; column < PersonRecordBatch.TEXT_COLUMNS; column++) {
+            int field = textFields[column];
+            batch.setText(row, column, tokenizer.start(field), tokenizer.end(field));
+
+            ValueDictionary dictionary = batch.dictionary(column);
+            if (dictionary != null) {
+                batch.setCode(row, column, dictionary.codeOf(buffer, tokenizer.start(field), tokenizer.end(field)));
+            }
+        }
+
+        if (validator != null) {
+            validator.validate(batch, row);
+        }
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            //Non-ASCII whitespace is rare enough to take the decoding path
+            if (b < 0) return Utf8.decode(buffer, from, to).isBlank();
+            if (!Character.isWhitespace(b)) return false;
+        }
+        return true;
+    }
+}
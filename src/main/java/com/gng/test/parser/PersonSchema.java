@@ -0,0 +1,189 @@
+package com.gng.test.parser;
+
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Column layout of a delimited feed, compiled against PersonRecord.
+ * <p>
+ * A layout is a delimiter plus one spec per file column, in file order: {@code field[:type][:notrim]}.
+ * {@code field} is a PersonRecord component, or {@code -} for a column the feed has but we don't use;
+ * {@code type} is {@code text} or {@code decimal} and must agree with the component; fields are trimmed
+ * unless marked {@code notrim}. Every component has to be mapped exactly once.
+ * <p>
+ * All of this is resolved once, when the schema is compiled: the result is a few flat index arrays,
+ * so the per-line parse does no name lookups or reflection and runs like the hand-written 7-column parser.
+ */
+public final class PersonSchema {
+
+    public enum Type { TEXT, DECIMAL }
+
+    public static final PersonSchema DEFAULT = compile('|',
+            List.of("uuid", "id", "name", "likes", "transport", "avg_speed", "top_speed"));
+
+    private static final String SKIP = "-";
+
+    private final char delimiter;
+    private final String[] fieldNames;
+    private final boolean[] trim;
+    private final int[] textFields;
+    private final int[] decimalFields;
+    private final String fieldCountMessage;
+    private final String[] invalidNumberMessages;
+
+    private PersonSchema(char delimiter, String[] fieldNames, boolean[] trim, int[] textFields, int[] decimalFields) {
+        this.delimiter = delimiter;
+        this.fieldNames = fieldNames;
+        this.trim = trim;
+        this.textFields = textFields;
+        this.decimalFields = decimalFields;
+        this.fieldCountMessage = "Incorrect number of fields, expected " + fieldNames.length;
+
+        String avgSpeed = fieldNames[decimalFields[0]];
+        String topSpeed = fieldNames[decimalFields[1]];
+        this.invalidNumberMessages = new String[]{
+                "Invalid number format in " + avgSpeed + " and " + topSpeed,
+                "Invalid number format in " + avgSpeed,
+                "Invalid number format in " + topSpeed
+        };
+    }
+
+    /**
+     * Compiles a layout.
+     * @param delimiter a single-byte ASCII field delimiter
+     * @param columnSpecs one spec per file column, in file order
+     * @throws IllegalArgumentException if the layout doesn't map cleanly onto PersonRecord
+     */
+    public static PersonSchema compile(char delimiter, List<String> columnSpecs) {
+        if (delimiter > 0x7F || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be a single-byte ASCII character other than a line break");
+        }
+        if (columnSpecs.isEmpty()) {
+            throw new IllegalArgumentException("Schema must define at least one column");
+        }
+
+        //PersonRecord's String components are the batch's text columns, in order; its doubles are the speeds
+        List<String> textComponents = new ArrayList<>();
+        List<String> decimalComponents = new ArrayList<>();
+        for (RecordComponent component : PersonRecord.class.getRecordComponents()) {
+            if (component.getType() == String.class) textComponents.add(component.getName());
+            else if (component.getType() == double.class) decimalComponents.add(component.getName());
+            else throw new IllegalStateException("Unsupported PersonRecord component type: " + component);
+        }
+        if (textComponents.size() != PersonRecordBatch.TEXT_COLUMNS || decimalComponents.size() != 2) {
+            throw new IllegalStateException("PersonRecord components no longer match PersonRecordBatch columns");
+        }
+
+        int fieldCount = columnSpecs.size();
+        String[] fieldNames = new String[fieldCount];
+        boolean[] trim = new boolean[fieldCount];
+        int[] textFields = new int[textComponents.size()];
+        int[] decimalFields = new int[decimalComponents.size()];
+        Arrays.fill(textFields, -1);
+        Arrays.fill(decimalFields, -1);
+
+        for (int field = 0; field < fieldCount; field++) {
+            String[] parts = columnSpecs.get(field).trim().split(":");
+            String name = parts[0].trim();
+            Type type = null;
+            boolean trimmed = true;
+            for (int p = 1; p < parts.length; p++) {
+                String option = parts[p].trim().toLowerCase(Locale.ROOT);
+                switch (option) {
+                    case "text" -> type = Type.TEXT;
+                    case "decimal" -> type = Type.DECIMAL;
+                    case "notrim" -> trimmed = false;
+                    default -> throw new IllegalArgumentException("Unknown option '" + option + "' for column " + name);
+                }
+            }
+
+            fieldNames[field] = name;
+            trim[field] = trimmed;
+            if (name.equals(SKIP)) continue;
+
+            int text = textComponents.indexOf(name);
+            int decimal = decimalComponents.indexOf(name);
+            if (text < 0 && decimal < 0) {
+                throw new IllegalArgumentException("Unknown column " + name + ", expected one of "
+                        + textComponents + " or " + decimalComponents);
+            }
+            Type componentType = text >= 0 ? Type.TEXT : Type.DECIMAL;
+            if (type != null && type != componentType) {
+                throw new IllegalArgumentException("Column " + name + " is " + componentType.name().toLowerCase(Locale.ROOT)
+                        + ", not " + type.name().toLowerCase(Locale.ROOT));
+            }
+
+            int[] mapping = text >= 0 ? textFields : decimalFields;
+            int index = text >= 0 ? text : decimal;
+            if (mapping[index] >= 0) {
+                throw new IllegalArgumentException("Column " + name + " is mapped more than once");
+            }
+            mapping[index] = field;
+        }
+
+        List<String> unmapped = new ArrayList<>();
+        for (int i = 0; i < textFields.length; i++) {
+            if (textFields[i] < 0) unmapped.add(textComponents.get(i));
+        }
+        for (int i = 0; i < decimalFields.length; i++) {
+            if (decimalFields[i] < 0) unmapped.add(decimalComponents.get(i));
+        }
+        if (!unmapped.isEmpty()) {
+            throw new IllegalArgumentException("Schema does not map " + unmapped);
+        }
+
+        return new PersonSchema(delimiter, fieldNames, trim, textFields, decimalFields);
+    }
+
+    public char delimiter() {
+        return delimiter;
+    }
+
+    public int fieldCount() {
+        return fieldNames.length;
+    }
+
+    public String fieldName(int field) {
+        return fieldNames[field];
+    }
+
+    /**
+     * @return per file column, whether it is trimmed; a copy
+     */
+    public boolean[] trim() {
+        return trim.clone();
+    }
+
+    /**
+     * @return the file column holding a PersonRecordBatch text column
+     */
+    public int textField(int column) {
+        return textFields[column];
+    }
+
+    public int avgSpeedField() {
+        return decimalFields[0];
+    }
+
+    public int topSpeedField() {
+        return decimalFields[1];
+    }
+
+    public String fieldCountMessage() {
+        return fieldCountMessage;
+    }
+
+    /**
+     * @return the parse error for a line where at least one of the speeds is not a number
+     */
+    public String invalidNumberMessage(boolean avgSpeedValid, boolean topSpeedValid) {
+        if (!avgSpeedValid && !topSpeedValid) return invalidNumberMessages[0];
+        return invalidNumberMessages[avgSpeedValid ? 2 : 1];
+    }
+}
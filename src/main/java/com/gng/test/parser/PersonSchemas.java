@@ -0,0 +1,31 @@
+package com.gng.test.parser;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The configured column layouts: the default one, and any number of named ones for feeds that are laid out
+ * differently, picked per upload by name. Names are case-insensitive.
+ */
+public final class PersonSchemas {
+
+    private final PersonSchema defaultSchema;
+    private final Map<String, PersonSchema> named;
+
+    public PersonSchemas(PersonSchema defaultSchema, Map<String, PersonSchema> named) {
+        this.defaultSchema = defaultSchema;
+        Map<String, PersonSchema> byName = new HashMap<>();
+        named.forEach((name, schema) -> byName.put(name.toLowerCase(Locale.ROOT), schema));
+        this.named = Map.copyOf(byName);
+    }
+
+    /**
+     * @param name a layout name, or null
+     * @return the named layout, the default one for a null name, or null if there is no layout by that name
+     */
+    public PersonSchema find(String name) {
+        if (name == null) return defaultSchema;
+        return named.get(name.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,14 @@
+package com.gng.test.parser;
+
+import com.gng.test.model.PersonRecordBatch;
+
+/**
+ * Validation hook run by the parser on each record row right after it is parsed, while the line is still
+ * in cache; implementations record violations on the batch with {@link PersonRecordBatch#addViolation}.
+ * Called from parse worker threads, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface RowValidator {
+
+    void validate(PersonRecordBatch batch, int row);
+}
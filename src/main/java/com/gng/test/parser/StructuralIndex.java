@@ -0,0 +1,109 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stage one of a two-stage parse, in the style of simdjson: finds the positions of every
+ * line break ('\n', '\r') and delimiter in a byte range, which the tokenizer then consumes
+ * instead of looking at every byte itself.
+ * <p>
+ * The range is indexed one block at a time so the position array stays small and cache-resident.
+ * Blocks are scanned eight bytes per step with SWAR compares on long words; the scalar mode checks
+ * byte by byte and yields exactly the same positions. Instances are reusable but not thread-safe.
+ */
+public final class StructuralIndex {
+
+    static final int BLOCK_BYTES = 16 * 1024;
+
+    private static final long LF = Swar.broadcast((byte) '\n');
+    private static final long CR = Swar.broadcast((byte) '\r');
+
+    private final byte delimiter;
+    private final long delimiters;
+    private final boolean swar;
+    private final int[] positions = new int[BLOCK_BYTES];
+
+    private ByteBuffer buffer;
+    private int blockStart;
+    private int to;
+    private int count;
+    private int next;
+
+    public StructuralIndex(char delimiter) {
+        this(delimiter, true);
+    }
+
+    /**
+     * @param swar false to scan byte by byte; only useful to check the SWAR path against
+     */
+    public StructuralIndex(char delimiter, boolean swar) {
+        this.delimiter = (byte) delimiter;
+        this.delimiters = Swar.broadcast(this.delimiter);
+        this.swar = swar;
+    }
+
+    /**
+     * Starts indexing bytes [from, to) of the buffer.
+     */
+    public void reset(ByteBuffer buffer, int from, int to) {
+        //A private view, so reading little-endian words never touches the shared buffer's state
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.blockStart = from;
+        this.to = to;
+        this.count = 0;
+        this.next = 0;
+    }
+
+    /**
+     * @return the position of the next line break or delimiter, or -1 once the range is exhausted
+     */
+    public int next() {
+        while (next == count) {
+            if (blockStart >= to) return -1;
+
+            int blockEnd = (int) Math.min((long) blockStart + BLOCK_BYTES, to);
+            count = swar ? indexSwar(blockStart, blockEnd) : indexScalar(blockStart, blockEnd);
+            next = 0;
+            blockStart = blockEnd;
+        }
+        return positions[next++];
+    }
+
+    private int indexSwar(int from, int to) {
+        //Locals keep the loop free of field loads
+        ByteBuffer words = buffer;
+        int[] found = positions;
+        long pattern = delimiters;
+        int n = 0;
+        int i = from;
+
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = words.getLong(i);
+            long mask = Swar.matches(word, LF) | Swar.matches(word, CR) | Swar.matches(word, pattern);
+            while (mask != 0) {
+                found[n++] = i + Swar.firstByte(mask);
+                mask &= mask - 1;
+            }
+        }
+
+        for (; i < to; i++) {
+            if (isStructural(words.get(i))) found[n++] = i;
+        }
+        return n;
+    }
+
+    private int indexScalar(int from, int to) {
+        ByteBuffer bytes = buffer;
+        int[] found = positions;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (isStructural(bytes.get(i))) found[n++] = i;
+        }
+        return n;
+    }
+
+    private boolean isStructural(byte b) {
+        return b == '\n' || b == '\r' || b == delimiter;
+    }
+}
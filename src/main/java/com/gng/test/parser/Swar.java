@@ -0,0 +1,34 @@
+package com.gng.test.parser;
+
+/**
+ * SIMD-within-a-register helpers: byte comparisons on eight bytes of a long at once.
+ * Words are read little-endian, so byte k of a word is the buffer byte at offset k and
+ * maps to bits 8k..8k+7; match masks have the high bit of each matching byte set.
+ */
+final class Swar {
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private Swar() {
+    }
+
+    static long broadcast(byte b) {
+        return (b & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * @return a mask with 0x80 in every byte of the word equal to the pattern's byte, 0 elsewhere.
+     * Exact for every byte, unlike the shorter (x - 0x01..) & ~x trick which can flag bytes after a match.
+     */
+    static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return ~(((x & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | x | LOW_SEVEN_BITS);
+    }
+
+    /**
+     * @return the offset within the word of the lowest flagged byte of a non-zero match mask
+     */
+    static int firstByte(long mask) {
+        return Long.numberOfTrailingZeros(mask) >>> 3;
+    }
+}
@@ -0,0 +1,37 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoding helpers for UTF-8 byte ranges.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Decodes bytes [from, to) of the buffer without touching its position or limit.
+     */
+    public static String decode(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length == 0) return "";
+
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + from, length, StandardCharsets.UTF_8);
+        }
+
+        byte[] copy = new byte[length];
+        buffer.get(from, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Same rule as String.trim(): every char up to and including space is whitespace.
+     * UTF-8 continuation and lead bytes are all >= 0x80, so this is safe on raw bytes.
+     */
+    public static boolean isTrimmable(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+}
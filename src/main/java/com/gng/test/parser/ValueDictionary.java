@@ -0,0 +1,158 @@
+package com.gng.test.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-parse dictionary for a low-cardinality text column. Each distinct value is decoded once
+ * and gets an int code; rows store the code and share the one String instance.
+ * <p>
+ * Lookups work on raw bytes and never allocate. The table is copy-on-write: readers use the
+ * current immutable snapshot without locking, and the rare insert publishes a new snapshot.
+ * Once {@code maxEntries} values are known, or for values longer than {@link #MAX_VALUE_BYTES},
+ * lookups return -1 and the caller keeps the value as offsets, so a high-cardinality column
+ * cannot grow the dictionary without bound.
+ */
+public final class ValueDictionary {
+
+    public static final int MAX_VALUE_BYTES = 64;
+
+    private final int maxEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ReentrantLock insertLock = new ReentrantLock();
+    private volatile Table table;
+
+    public ValueDictionary(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.table = new Table(Integer.highestOneBit(Math.max(maxEntries, 1) * 4 - 1) << 1, 0);
+    }
+
+    /**
+     * @return the code of the value at [from, to), or -1 if it is not (and cannot be) in the dictionary
+     */
+    public int codeOf(ByteBuffer buffer, int from, int to) {
+        if (to - from > MAX_VALUE_BYTES) {
+            misses.increment();
+            return -1;
+        }
+
+        Table current = table;
+        int hash = hash(buffer, from, to);
+        int code = current.find(buffer, from, to, hash);
+        if (code >= 0) {
+            hits.increment();
+            return code;
+        }
+
+        misses.increment();
+        //The table only grows, so once it is full every later miss of a high-cardinality column stays off the lock
+        if (current.size >= maxEntries) return -1;
+        return insert(buffer, from, to, hash);
+    }
+
+    /**
+     * @return the shared String for a code previously returned by {@link #codeOf}
+     */
+    public String value(int code) {
+        return table.values[code];
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    //A lock rather than synchronized, so a virtual thread parsing on the request thread waits without pinning its carrier
+    private int insert(ByteBuffer buffer, int from, int to, int hash) {
+        insertLock.lock();
+        try {
+            Table current = table;
+
+            //Another thread may have added it while we were waiting
+            int code = current.find(buffer, from, to, hash);
+            if (code >= 0) return code;
+            if (current.size >= maxEntries) return -1;
+
+            byte[] key = new byte[to - from];
+            buffer.get(from, key);
+
+            Table next = current.copyWith(key, hash, new String(key, StandardCharsets.UTF_8));
+            table = next;
+            return next.size - 1;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + buffer.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Table {
+        private final byte[][] keys;
+        private final int[] codes;
+        private final String[] values;
+        private final int size;
+
+        Table(int capacity, int valueCapacity) {
+            this.keys = new byte[capacity][];
+            this.codes = new int[capacity];
+            this.values = new String[valueCapacity];
+            this.size = 0;
+        }
+
+        private Table(byte[][] keys, int[] codes, String[] values, int size) {
+            this.keys = keys;
+            this.codes = codes;
+            this.values = values;
+            this.size = size;
+        }
+
+        int find(ByteBuffer buffer, int from, int to, int hash) {
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) return -1;
+                if (equals(key, buffer, from, to)) return codes[slot];
+            }
+        }
+
+        Table copyWith(byte[] key, int hash, String value) {
+            byte[][] newKeys = keys.clone();
+            int[] newCodes = codes.clone();
+            String[] newValues = Arrays.copyOf(values, size + 1);
+
+            int mask = newKeys.length - 1;
+            int slot = hash & mask;
+            while (newKeys[slot] != null) slot = (slot + 1) & mask;
+
+            newKeys[slot] = key;
+            newCodes[slot] = size;
+            newValues[size] = value;
+            return new Table(newKeys, newCodes, newValues, size + 1);
+        }
+
+        private static boolean equals(byte[] key, ByteBuffer buffer, int from, int to) {
+            if (key.length != to - from) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i)) return false;
+            }
+            return true;
+        }
+    }
+}
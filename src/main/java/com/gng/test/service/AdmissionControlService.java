@@ -0,0 +1,21 @@
+package com.gng.test.service;
+
+import com.gng.test.dto.AdmissionStatusDTO;
+
+public interface AdmissionControlService {
+
+    /**
+     * Reserves memory for a request of the given size, waiting for others to finish if it doesn't fit yet.
+     * @param contentLength the request's Content-Length, or -1 if it didn't send one
+     * @return the permit to close once the request, or the job or session it started, is done,
+     * or null if the request is to be turned away
+     */
+    AdmissionPermit admit(long contentLength) throws InterruptedException;
+
+    /**
+     * @return how long a turned away client should wait before trying again
+     */
+    long getRetryAfterSeconds();
+
+    AdmissionStatusDTO getStatus();
+}
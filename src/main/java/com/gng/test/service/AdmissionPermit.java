@@ -0,0 +1,15 @@
+package com.gng.test.service;
+
+/**
+ * The memory budget held by one admitted request. Closing it hands the budget back; closing it again does nothing.
+ */
+public interface AdmissionPermit extends AutoCloseable {
+
+    /**
+     * A permit that holds nothing, for work that didn't go through admission control.
+     */
+    AdmissionPermit NONE = () -> { };
+
+    @Override
+    void close();
+}
@@ -0,0 +1,17 @@
+package com.gng.test.service;
+
+import com.gng.test.model.ProcessingOptions;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface BatchProcessingService {
+
+    /**
+     * Processes the files in parallel and writes their results to out as a ZIP, each one as soon as its file is done.
+     * Each file's outcome file or error list goes under "{n}-{filename}/", and summary.json, in upload order, comes last.
+     */
+    void process(List<MultipartFile> files, ProcessingOptions options, OutputStream out) throws IOException;
+}
@@ -0,0 +1,45 @@
+package com.gng.test.service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of an upload's bytes, counting how many went in. Fed from one thread only.
+ */
+public final class ContentDigest {
+
+    private final MessageDigest digest;
+    private long bytes;
+
+    public ContentDigest() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //Every JRE has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void update(ByteBuffer content) {
+        bytes += content.remaining();
+        digest.update(content);
+    }
+
+    public void update(byte[] content, int offset, int length) {
+        bytes += length;
+        digest.update(content, offset, length);
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the digest as hex; nothing more can be added after this
+     */
+    public String finish() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
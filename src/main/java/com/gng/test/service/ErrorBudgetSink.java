@@ -0,0 +1,60 @@
+package com.gng.test.service;
+
+import com.gng.test.dto.FileParseErrorDTO;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects errors up to a budget and ignores records; subclasses that also want the records override onRecord.
+ * The first error past the budget marks the list as truncated and makes the sink done, which stops the parse.
+ */
+public class ErrorBudgetSink implements ParseResultSink {
+
+    private final int maxErrors;
+    private final List<FileParseErrorDTO> errors = new ArrayList<>();
+    private boolean truncated;
+
+    public ErrorBudgetSink(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    @Override
+    public void onRecord(PersonRecord record) throws Exception {
+    }
+
+    @Override
+    public void onRecord(PersonRecordBatch batch, int row) throws Exception {
+    }
+
+    @Override
+    public void onError(FileParseErrorDTO error) {
+        if (errors.size() >= maxErrors) {
+            truncated = true;
+            return;
+        }
+        errors.add(error);
+    }
+
+    @Override
+    public boolean isDone() {
+        return truncated;
+    }
+
+    public List<FileParseErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * @return whether errors were dropped, and the file was not read to the end
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -1,10 +1,65 @@
 package com.gng.test.service;
 
 import com.gng.test.model.ParsedLineResult;
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.parser.RowValidator;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface FileParsingService {
-    List<ParsedLineResult> parseFile(MultipartFile file) throws Exception;
+
+    /**
+     * Streams the file through the parser, pushing each parsed chunk to the sink as a columnar batch.
+     * Lines follow the given layout, or the configured one when it is null.
+     * The validator, if any, runs on every record row inside the parse itself, so batches reach the sink
+     * already classified.
+     */
+    void parseBatches(MultipartFile file, PersonSchema schema, RowValidator validator, PersonRecordBatchSink sink) throws Exception;
+
+    /**
+     * Incremental variant of {@link #parseBatches(MultipartFile, PersonSchema, RowValidator, PersonRecordBatchSink)} for files
+     * that mostly repeat an earlier upload: the file is cut into content-defined chunks, and a chunk whose bytes
+     * were already parsed reuses that batch instead of being parsed and validated again. Line numbers are always
+     * those of this file. Cached batches are keyed by content and by whether a validator ran, so every
+     * incremental call that validates must pass the same RowValidator.
+     */
+    void parseBatchesIncremental(MultipartFile file, PersonSchema schema, RowValidator validator,
+                                 PersonRecordBatchSink sink) throws Exception;
+
+    /**
+     * Streams the file through the parser in the configured layout.
+     */
+    default void parseBatches(MultipartFile file, RowValidator validator, PersonRecordBatchSink sink) throws Exception {
+        parseBatches(file, null, validator, sink);
+    }
+
+    /**
+     * Streams the file through the parser without validation.
+     */
+    default void parseBatches(MultipartFile file, PersonRecordBatchSink sink) throws Exception {
+        parseBatches(file, null, null, sink);
+    }
+
+    /**
+     * Streams the file through the parser, pushing every non-blank line to the sink in line order.
+     * Each line is materialized from its batch as it is handed over.
+     */
+    default void parseFile(MultipartFile file, ParsedLineSink sink) throws Exception {
+        parseBatches(file, batch -> {
+            for (int row = 0; row < batch.size(); row++) {
+                sink.accept(batch.toParsedLine(row));
+            }
+        });
+    }
+
+    /**
+     * Convenience variant that materializes every parsed line. Prefer the streaming variants for large files.
+     */
+    default List<ParsedLineResult> parseFile(MultipartFile file) throws Exception {
+        List<ParsedLineResult> results = new ArrayList<>();
+        parseFile(file, results::add);
+        return results;
+    }
 }
@@ -1,8 +1,68 @@
 package com.gng.test.service;
 
+import com.gng.test.dto.FileParseErrorDTO;
 import com.gng.test.model.ParseResult;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.parser.PersonSchema;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface FileValidationService {
-    ParseResult parseAndValidate(MultipartFile file, boolean validate) throws Exception;
+
+    /**
+     * Parses and optionally validates the file line by line, emitting valid records and errors to the sink.
+     * With checkDuplicates, a record whose uuid already appeared earlier in the file is reported as an error
+     * naming the line of the first occurrence.
+     * In incremental mode, chunks of the file that were already parsed and validated, by an earlier upload
+     * or earlier in this one, are taken from cache; the outcome is the same either way.
+     * Lines follow the given layout, or the configured one when it is null.
+     */
+    void parseAndValidate(MultipartFile file, PersonSchema schema, boolean validate, boolean checkDuplicates,
+                          boolean incremental, ParseResultSink sink) throws Exception;
+
+    /**
+     * Parses and optionally validates the file line by line in the configured layout.
+     */
+    default void parseAndValidate(MultipartFile file, boolean validate, boolean checkDuplicates, boolean incremental,
+                                  ParseResultSink sink) throws Exception {
+        parseAndValidate(file, null, validate, checkDuplicates, incremental, sink);
+    }
+
+    /**
+     * Parses and optionally validates the file line by line, parsing every chunk afresh.
+     */
+    default void parseAndValidate(MultipartFile file, boolean validate, boolean checkDuplicates, ParseResultSink sink) throws Exception {
+        parseAndValidate(file, validate, checkDuplicates, false, sink);
+    }
+
+    /**
+     * Parses and optionally validates the file line by line, without the duplicate uuid check.
+     */
+    default void parseAndValidate(MultipartFile file, boolean validate, ParseResultSink sink) throws Exception {
+        parseAndValidate(file, validate, false, sink);
+    }
+
+    /**
+     * Convenience variant that collects the whole outcome in memory.
+     */
+    default ParseResult parseAndValidate(MultipartFile file, boolean validate) throws Exception {
+        List<PersonRecord> validRecords = new ArrayList<>();
+        List<FileParseErrorDTO> errors = new ArrayList<>();
+
+        parseAndValidate(file, validate, new ParseResultSink() {
+            @Override
+            public void onRecord(PersonRecord record) {
+                validRecords.add(record);
+            }
+
+            @Override
+            public void onError(FileParseErrorDTO error) {
+                errors.add(error);
+            }
+        });
+
+        return new ParseResult(validRecords, errors);
+    }
 }
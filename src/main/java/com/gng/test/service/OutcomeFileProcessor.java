@@ -0,0 +1,81 @@
+package com.gng.test.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.output.OutcomeWriter;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Single-pass processing into a result file. Records are written to the outcome file as they come,
+ * and the outcome file is swapped for the error list if an error turns up, so a file is parsed only once
+ * whether or not it turns out to be valid.
+ */
+public final class OutcomeFileProcessor {
+
+    private OutcomeFileProcessor() {
+    }
+
+    /**
+     * @param errorsFile where the error list is written as JSON, or null to only keep it in the returned sink
+     * @return the sink, holding the errors if there were any; the result is then in errorsFile, else in outcomeFile
+     */
+    public static ErrorBudgetSink process(FileValidationService fileValidationService, MultipartFile input, ProcessingOptions options,
+                                   Path outcomeFile, Path errorsFile, ObjectMapper objectMapper) throws Exception {
+        return process(fileValidationService, input, options, outcomeFile, errorsFile, objectMapper, null);
+    }
+
+    /**
+     * @param errorsFile where the error list is written as JSON, or null to only keep it in the returned sink
+     * @param contentDigest takes in the upload's bytes as the parse reads them, or null
+     * @return the sink, holding the errors if there were any; the result is then in errorsFile, else in outcomeFile
+     */
+    public static ErrorBudgetSink process(FileValidationService fileValidationService, MultipartFile input, ProcessingOptions options,
+                                   Path outcomeFile, Path errorsFile, ObjectMapper objectMapper,
+                                   ContentDigest contentDigest) throws Exception {
+        ErrorBudgetSink sink;
+        try (OutcomeWriter writer = options.format().open(Files.newOutputStream(outcomeFile), objectMapper.getFactory())) {
+            sink = new ErrorBudgetSink(options.maxErrors()) {
+                @Override
+                public void onRecord(PersonRecord r) throws IOException {
+                    if (!hasErrors()) {
+                        writer.write(r.name(), r.transport(), r.top_speed());
+                    }
+                }
+
+                @Override
+                public void onRecord(PersonRecordBatch batch, int row) throws IOException {
+                    //Once there is an error the records are never sent, so skip decoding them
+                    if (!hasErrors()) {
+                        writer.write(batch.name(row), batch.transport(row), batch.topSpeed(row));
+                    }
+                }
+
+                @Override
+                public void onContent(ByteBuffer content) {
+                    if (contentDigest != null) contentDigest.update(content);
+                }
+            };
+
+            fileValidationService.parseAndValidate(input, options.schema(), options.validate(),
+                    options.checkDuplicates(), options.incremental(), sink);
+            if (!sink.hasErrors()) {
+                writer.finish();
+            }
+        }
+
+        if (sink.hasErrors()) {
+            Files.deleteIfExists(outcomeFile);
+            if (errorsFile != null) {
+                objectMapper.writeValue(errorsFile.toFile(), sink.getErrors());
+            }
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,38 @@
+package com.gng.test.service;
+
+import com.gng.test.dto.FileParseErrorDTO;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the outcome of the parse/validate pipeline one line at a time.
+ * Each line produces either a single valid record or one or more errors.
+ */
+public interface ParseResultSink {
+    void onRecord(PersonRecord record) throws Exception;
+
+    void onError(FileParseErrorDTO error) throws Exception;
+
+    /**
+     * Called for a valid record that is still in columnar form. Sinks that only need some
+     * of the columns can override this to read them without materializing a PersonRecord.
+     */
+    default void onRecord(PersonRecordBatch batch, int row) throws Exception {
+        onRecord(batch.toRecord(row));
+    }
+
+    /**
+     * Checked after every line; once it returns true nothing more is emitted and the parse stops early.
+     */
+    default boolean isDone() {
+        return false;
+    }
+
+    /**
+     * The upload's bytes as the parse reads them, see {@link PersonRecordBatchSink#onContent}.
+     */
+    default void onContent(ByteBuffer content) {
+    }
+}
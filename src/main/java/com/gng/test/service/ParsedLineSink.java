@@ -0,0 +1,11 @@
+package com.gng.test.service;
+
+import com.gng.test.model.ParsedLineResult;
+
+/**
+ * Receives parsed lines one at a time, in file order, as the parser produces them.
+ */
+@FunctionalInterface
+public interface ParsedLineSink {
+    void accept(ParsedLineResult line) throws Exception;
+}
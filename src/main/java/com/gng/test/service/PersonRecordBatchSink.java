@@ -0,0 +1,27 @@
+package com.gng.test.service;
+
+import com.gng.test.model.PersonRecordBatch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives parsed batches one at a time, in file order.
+ */
+@FunctionalInterface
+public interface PersonRecordBatchSink {
+    void accept(PersonRecordBatch batch) throws Exception;
+
+    /**
+     * Checked after every batch; once it returns true the parse stops reading the file and returns.
+     */
+    default boolean isDone() {
+        return false;
+    }
+
+    /**
+     * Called on the reading thread with the upload's bytes as the parse reads them, as received (before any
+     * decompression) and in order. A parse that reads the upload to the end passes every byte exactly once.
+     */
+    default void onContent(ByteBuffer content) {
+    }
+}
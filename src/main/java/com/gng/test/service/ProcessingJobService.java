@@ -0,0 +1,23 @@
+package com.gng.test.service;
+
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+public interface ProcessingJobService {
+
+    /**
+     * Takes a copy of the upload and queues it for processing in the background.
+     * @param permit the request's admission permit; the job holds it until it is done, or closes it right away
+     *               if it is not queued
+     * @throws java.util.concurrent.RejectedExecutionException if the job queue is full
+     */
+    ProcessingJob submit(MultipartFile file, ProcessingOptions options, AdmissionPermit permit) throws IOException;
+
+    /**
+     * @return the job, or null if there is no such job or its result has expired
+     */
+    ProcessingJob find(String id);
+}
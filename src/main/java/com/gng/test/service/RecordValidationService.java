@@ -1,10 +1,12 @@
 package com.gng.test.service;
 
-import com.gng.test.dto.FileParseErrorDTO;
-import com.gng.test.model.ParsedLineResult;
-
-import java.util.List;
+import com.gng.test.model.PersonRecordBatch;
 
 public interface RecordValidationService {
-    List<FileParseErrorDTO> validateRecords(List<ParsedLineResult> parsedLines);
+
+    /**
+     * Validates one record row and records its violations on the batch.
+     * Safe to call from parse workers, so it can be handed to the parser as a RowValidator.
+     */
+    void validateRow(PersonRecordBatch batch, int row);
 }
@@ -0,0 +1,53 @@
+package com.gng.test.service;
+
+import com.gng.test.model.CachedResult;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.ResultCacheKey;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ResultCacheService {
+
+    /**
+     * Hashes the upload in full.
+     * @return the key of its result, or null if the cache is disabled
+     */
+    ResultCacheKey keyFor(MultipartFile file, ProcessingOptions options) throws IOException;
+
+    /**
+     * The key to look the upload up by before it is parsed. Only an upload that looks like one processed recently,
+     * going by its size and first and last bytes, is hashed in full; any other is hashed while it is parsed instead,
+     * see {@link #keyOf}.
+     * @return the key of its result, or null if no result can be cached for it yet or the cache is disabled
+     */
+    ResultCacheKey lookupKey(MultipartFile file, ProcessingOptions options) throws IOException;
+
+    /**
+     * @return a digest to feed the upload's bytes to while it is parsed, or null if the cache is disabled
+     */
+    ContentDigest newDigest();
+
+    /**
+     * The key of an upload from the digest taken while it was parsed. An upload the parse didn't read to the end
+     * is hashed in full instead.
+     * @return the key of its result, or null for a null digest
+     */
+    ResultCacheKey keyOf(MultipartFile file, ProcessingOptions options, ContentDigest digest) throws IOException;
+
+    /**
+     * @return the cached result, or null on a miss or a null key
+     */
+    CachedResult get(ResultCacheKey key);
+
+    /**
+     * Caches the JSON error report of an invalid upload; a null key is ignored.
+     */
+    void putErrors(ResultCacheKey key, byte[] errorReport, boolean errorsTruncated);
+
+    /**
+     * Starts copying an outcome file written to {@code out} into the cache; with a null key it is only passed through.
+     */
+    ResultRecording record(ResultCacheKey key, OutputStream out);
+}
@@ -0,0 +1,24 @@
+package com.gng.test.service;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+
+/**
+ * An outcome file being sent to the client and copied into the result cache as it goes.
+ * Nothing is cached unless {@link #commit()} is called; closing without it drops the copy.
+ */
+public interface ResultRecording extends Closeable {
+
+    /**
+     * The stream to write the outcome to; it writes through to the client's stream and closes it when closed.
+     */
+    OutputStream stream();
+
+    /**
+     * Caches everything written so far. Call once the outcome is complete.
+     */
+    void commit();
+
+    @Override
+    void close();
+}
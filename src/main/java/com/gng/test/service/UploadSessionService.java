@@ -0,0 +1,45 @@
+package com.gng.test.service;
+
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.UploadSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UploadSessionService {
+
+    /**
+     * Opens a session and starts parsing it; the parse waits for each part as it comes.
+     * @param permit the request's admission permit; the session holds it until its parse is done, or closes it
+     *               right away if it isn't opened
+     * @throws java.util.concurrent.RejectedExecutionException if too many sessions are open
+     */
+    UploadSession start(ProcessingOptions options, AdmissionPermit permit) throws IOException;
+
+    /**
+     * Stores one part. Sending a part that was already received again changes nothing.
+     * @return the session, or null if there is no such session
+     * @throws IllegalArgumentException if the part number is out of range
+     * @throws IllegalStateException if the session is already done
+     */
+    UploadSession putPart(String id, int part, InputStream content) throws IOException;
+
+    /**
+     * Declares the number of parts and waits a short while for the result, which is usually nearly ready.
+     * @return the session, or null if there is no such session
+     * @throws IllegalArgumentException if the number of parts is out of range
+     * @throws IllegalStateException if some parts are missing; they can be sent and the upload completed again
+     */
+    UploadSession complete(String id, int totalParts) throws InterruptedException;
+
+    /**
+     * @return the session, or null if there is no such session or its result has expired
+     */
+    UploadSession find(String id);
+
+    /**
+     * Stops the parse and drops the session with everything it received.
+     * @return whether there was such a session
+     */
+    boolean abort(String id);
+}
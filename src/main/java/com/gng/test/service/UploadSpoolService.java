@@ -0,0 +1,10 @@
+package com.gng.test.service;
+
+import com.gng.test.model.SpooledUpload;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+public interface UploadSpoolService {
+    SpooledUpload spool(MultipartFile file) throws IOException;
+}
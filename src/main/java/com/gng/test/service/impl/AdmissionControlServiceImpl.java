@@ -0,0 +1,214 @@
+package com.gng.test.service.impl;
+
+import com.gng.test.dto.AdmissionStatusDTO;
+import com.gng.test.service.AdmissionControlService;
+import com.gng.test.service.AdmissionPermit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the memory held by requests in flight within a budget. Each request is charged its Content-Length
+ * times memory-per-upload-byte, for the upload itself and the copies parsing makes of it.
+ * A request is let in if its charge fits both in what is left of max-in-flight-bytes and in the heap headroom
+ * left after the last GC; otherwise it waits in line, and is turned away once the line is full or its wait runs out.
+ * A request on its own is always let in, so an upload larger than the whole budget can still be processed.
+ */
+@Service
+public class AdmissionControlServiceImpl implements AdmissionControlService {
+
+    //Heap headroom also grows when the GC runs, which nothing signals, so waiting requests look again this often
+    private static final long HEAP_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final AdmissionPermit UNLIMITED = () -> { };
+
+    private final boolean enabled;
+    private final double memoryPerUploadByte;
+    private final long unknownLengthBytes;
+    private final long maxInFlightBytes;
+    private final long heapLimitBytes;
+    private final long queueTimeoutNanos;
+    private final int maxQueued;
+    private final long retryAfterSeconds;
+
+    //A lock rather than synchronized, so a waiting virtual thread doesn't pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    //Waiting requests, first come first served; a small request doesn't get ahead of a large one
+    private final ArrayDeque<Object> waiting = new ArrayDeque<>();
+    //Written under the lock; volatile so the gauges can read them without it
+    private volatile long inFlightBytes;
+    private volatile int inFlightRequests;
+
+    private final Counter admitted;
+    private final Counter delayed;
+    private final Counter rejected;
+
+    public AdmissionControlServiceImpl(@Value("${process.admission.enabled:true}") boolean enabled,
+                                       @Value("${process.admission.memory-per-upload-byte:4}") double memoryPerUploadByte,
+                                       @Value("${process.admission.unknown-length-bytes:16777216}") long unknownLengthBytes,
+                                       @Value("${process.admission.max-in-flight-bytes:0}") long maxInFlightBytes,
+                                       @Value("${process.admission.max-heap-fraction:0.85}") double maxHeapFraction,
+                                       @Value("${process.admission.queue-timeout-ms:2000}") long queueTimeoutMs,
+                                       @Value("${process.admission.max-queued:32}") int maxQueued,
+                                       @Value("${process.admission.retry-after-seconds:5}") long retryAfterSeconds,
+                                       MeterRegistry meterRegistry) {
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        this.enabled = enabled;
+        this.memoryPerUploadByte = memoryPerUploadByte;
+        this.unknownLengthBytes = unknownLengthBytes;
+        //0 = half the heap
+        this.maxInFlightBytes = maxInFlightBytes > 0 ? maxInFlightBytes : maxHeap / 2;
+        this.heapLimitBytes = (long) (maxHeap * maxHeapFraction);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.maxQueued = maxQueued;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.admitted = Counter.builder("process.admission.requests")
+                .tag("result", "admitted")
+                .description("Uploads let in right away")
+                .register(meterRegistry);
+        this.delayed = Counter.builder("process.admission.requests")
+                .tag("result", "delayed")
+                .description("Uploads let in after waiting for memory to free up")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("process.admission.requests")
+                .tag("result", "rejected")
+                .description("Uploads turned away with a 429")
+                .register(meterRegistry);
+        Gauge.builder("process.admission.in-flight.bytes", this, service -> service.inFlightBytes)
+                .description("Memory charged to uploads being processed")
+                .register(meterRegistry);
+        Gauge.builder("process.admission.in-flight.requests", this, service -> service.inFlightRequests)
+                .description("Uploads being processed")
+                .register(meterRegistry);
+        Gauge.builder("process.admission.queued.requests", this, AdmissionControlServiceImpl::queuedRequests)
+                .description("Uploads waiting to be let in")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param contentLength the request's Content-Length, or -1 if it didn't send one
+     * @return the permit, or null if the line was full or the wait ran past queue-timeout-ms
+     */
+    @Override
+    public AdmissionPermit admit(long contentLength) throws InterruptedException {
+        if (!enabled) return UNLIMITED;
+
+        long cost = (long) ((contentLength >= 0 ? contentLength : unknownLengthBytes) * memoryPerUploadByte);
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && fits(cost)) {
+                admitted.increment();
+                return grant(cost);
+            }
+            if (waiting.size() >= maxQueued) {
+                rejected.increment();
+                return null;
+            }
+
+            Object ticket = new Object();
+            waiting.addLast(ticket);
+            try {
+                long deadline = System.nanoTime() + queueTimeoutNanos;
+                while (true) {
+                    if (waiting.peekFirst() == ticket && fits(cost)) {
+                        delayed.increment();
+                        return grant(cost);
+                    }
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        rejected.increment();
+                        return null;
+                    }
+                    released.awaitNanos(Math.min(left, HEAP_RECHECK_NANOS));
+                }
+            } finally {
+                waiting.remove(ticket);
+                //The next in line may fit now
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public AdmissionStatusDTO getStatus() {
+        lock.lock();
+        try {
+            return new AdmissionStatusDTO(enabled, inFlightRequests, inFlightBytes, maxInFlightBytes, waiting.size(),
+                    heapLiveBytes(), heapLimitBytes,
+                    (long) admitted.count(), (long) delayed.count(), (long) rejected.count());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int queuedRequests() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Called under the lock
+    private boolean fits(long cost) {
+        if (inFlightRequests == 0) return true;
+        return inFlightBytes + cost <= maxInFlightBytes && heapLiveBytes() + cost <= heapLimitBytes;
+    }
+
+    //Called under the lock
+    private AdmissionPermit grant(long cost) {
+        inFlightBytes += cost;
+        inFlightRequests++;
+        AtomicBoolean open = new AtomicBoolean(true);
+        return () -> {
+            if (open.compareAndSet(true, false)) release(cost);
+        };
+    }
+
+    private void release(long cost) {
+        lock.lock();
+        try {
+            inFlightBytes -= cost;
+            inFlightRequests--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Heap in use as of the end of the last GC, so garbage that hasn't been collected yet isn't counted.
+     * With G1 every pool is measured after each young collection.
+     */
+    private static long heapLiveBytes() {
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            //All zeros until the pool's first collection
+            live += (usage != null && usage.getCommitted() > 0 ? usage : pool.getUsage()).getUsed();
+        }
+        return live;
+    }
+}
@@ -0,0 +1,188 @@
+package com.gng.test.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gng.test.dto.BatchFileResultDTO;
+import com.gng.test.model.ContentEncodedMultipartFile;
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.parser.Compression;
+import com.gng.test.service.BatchProcessingService;
+import com.gng.test.service.ErrorBudgetSink;
+import com.gng.test.service.FileValidationService;
+import com.gng.test.service.OutcomeFileProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+public class BatchProcessingServiceImpl implements BatchProcessingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchProcessingServiceImpl.class);
+    private static final String ERRORS_FILE_NAME = "errors.json";
+    private static final String SUMMARY_ENTRY = "summary.json";
+
+    private final FileValidationService fileValidationService;
+    private final ObjectMapper objectMapper;
+    private final Path batchDir;
+    private final int maxParallelFiles;
+
+    public BatchProcessingServiceImpl(FileValidationService fileValidationService,
+                                      ObjectMapper objectMapper,
+                                      @Value("${process.batch.dir:${java.io.tmpdir}/file-parser-batches}") Path batchDir,
+                                      @Value("${process.batch.max-parallel-files:4}") int maxParallelFiles) {
+        this.fileValidationService = fileValidationService;
+        this.objectMapper = objectMapper;
+        this.batchDir = batchDir;
+        this.maxParallelFiles = maxParallelFiles;
+    }
+
+    /**
+     * Each file is processed in a single pass into a result file of its own, at most max-parallel-files at a time;
+     * results are copied into the ZIP in the order the files finish and deleted right after.
+     * A file that can't be processed doesn't stop the others; it is listed in the summary as FAILED.
+     * @param files the uploaded files
+     * @param options how every file is to be processed
+     * @param out the client's stream
+     */
+    @Override
+    public void process(List<MultipartFile> files, ProcessingOptions options, OutputStream out) throws IOException {
+        Files.createDirectories(batchDir);
+        Path dir = Files.createTempDirectory(batchDir, "batch-");
+        Semaphore slots = new Semaphore(maxParallelFiles);
+        //One virtual thread per file, most of them waiting for a slot; closing waits for the running ones
+        ExecutorService fileThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("batch-file-", 1).factory());
+
+        try {
+            CompletionService<FileResult> finished = new ExecutorCompletionService<>(fileThreads);
+            for (int i = 0; i < files.size(); i++) {
+                int index = i;
+                finished.submit(() -> {
+                    slots.acquire();
+                    try {
+                        return processFile(index, files.get(index), options, dir);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+
+            List<BatchFileResultDTO> summary = new ArrayList<>(Collections.nCopies(files.size(), null));
+            //The ZIP is closed, and the response finished, only once every file is in
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024));
+            for (int i = 0; i < files.size(); i++) {
+                FileResult result = finished.take().get();
+                if (result.file() != null) {
+                    zip.putNextEntry(new ZipEntry(result.summary().getEntry()));
+                    Files.copy(result.file(), zip);
+                    zip.closeEntry();
+                    deleteQuietly(result.file());
+                }
+                summary.set(result.index(), result.summary());
+            }
+
+            zip.putNextEntry(new ZipEntry(SUMMARY_ENTRY));
+            zip.write(objectMapper.writeValueAsBytes(summary));
+            zip.closeEntry();
+            zip.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing batch");
+        } catch (ExecutionException e) {
+            //processFile reports its own failures, so only an interrupted wait for a slot ends up here
+            throw new IOException("Batch processing was interrupted", e.getCause());
+        } finally {
+            //On a failed write to the client, files still waiting for a slot are dropped
+            fileThreads.shutdownNow();
+            fileThreads.close();
+            deleteDirectory(dir);
+        }
+    }
+
+    private FileResult processFile(int index, MultipartFile file, ProcessingOptions options, Path dir) {
+        String name = file.getOriginalFilename();
+        String entryDir = (index + 1) + "-" + safeName(name) + "/";
+        Path outcomeFile = dir.resolve((index + 1) + "." + options.format().fileName());
+        Path errorsFile = dir.resolve((index + 1) + "." + ERRORS_FILE_NAME);
+
+        if (file.isEmpty()) {
+            return new FileResult(index, failed(name, "The file cannot be empty"), null);
+        }
+
+        try {
+            MultipartFile input = options.compression() == Compression.NONE
+                    ? file
+                    : new ContentEncodedMultipartFile(file, options.compression());
+
+            ErrorBudgetSink sink = OutcomeFileProcessor.process(fileValidationService, input, options,
+                    outcomeFile, errorsFile, objectMapper);
+            if (!sink.hasErrors()) {
+                return new FileResult(index, new BatchFileResultDTO(name, ProcessingJob.Status.SUCCEEDED.name(),
+                        entryDir + options.format().fileName(), null, null, null), outcomeFile);
+            }
+            return new FileResult(index, new BatchFileResultDTO(name, ProcessingJob.Status.INVALID.name(),
+                    entryDir + ERRORS_FILE_NAME, sink.getErrors().size(), sink.isTruncated(), null), errorsFile);
+        } catch (Exception e) {
+            logger.error("Batch file {} failed", name, e);
+            deleteQuietly(outcomeFile);
+            deleteQuietly(errorsFile);
+            return new FileResult(index, failed(name, e.getMessage()), null);
+        }
+    }
+
+    private static BatchFileResultDTO failed(String name, String message) {
+        return new BatchFileResultDTO(name, ProcessingJob.Status.FAILED.name(), null, null, null, message);
+    }
+
+    //The client's file name without any path, and nothing a ZIP tool could read as one
+    private static String safeName(String name) {
+        String base = name == null ? "" : name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        if (base.isBlank()) return "file";
+        return base.replaceAll("[^A-Za-z0-9._-]", "_").replaceAll("^\\.+", "_");
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list {}", dir, e);
+        }
+        deleteQuietly(dir);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", path, e);
+        }
+    }
+
+    /**
+     * @param file the file to copy into the ZIP, or null if there is none
+     */
+    private record FileResult(int index, BatchFileResultDTO summary, Path file) {
+    }
+}
@@ -1,70 +1,403 @@
 package com.gng.test.service.impl;
 
-import com.gng.test.model.ParsedLineResult;
-import com.gng.test.model.PersonRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gng.test.model.ContentEncodedMultipartFile;
+import com.gng.test.model.PathMultipartFile;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.parser.Chunk;
+import com.gng.test.parser.ChunkReader;
+import com.gng.test.parser.ChunkSource;
+import com.gng.test.parser.Compression;
+import com.gng.test.parser.ContentDefinedChunker;
+import com.gng.test.parser.MappedChunkReader;
+import com.gng.test.parser.PersonLineParser;
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.parser.RowValidator;
+import com.gng.test.parser.ValueDictionary;
 import com.gng.test.service.FileParsingService;
+import com.gng.test.service.PersonRecordBatchSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 @Service
 public class FileParsingServiceImpl implements FileParsingService {
 
-    private static final String DELIMITER = "\\|";
+    //Chunk size when parsing on the calling thread; small enough to stay cache- and heap-friendly
+    private static final int SEQUENTIAL_CHUNK_BYTES = 256 * 1024;
+
+    private final boolean parallelEnabled;
+    private final int parallelism;
+    private final int chunksPerRequest;
+    private final int minChunkBytes;
+    private final long mmapMinBytes;
+    private final int dictionaryMaxEntries;
+    private final PersonSchema schema;
+    private final ForkJoinPool parsePool;
+    private final Counter dictionaryHits;
+    private final Counter dictionaryMisses;
+    private final int incrementalMinChunkBytes;
+    private final int incrementalAvgChunkBytes;
+    //Batches of content-defined chunks, each parsed from line 1, shared by every incremental parse
+    private final Cache<ChunkKey, PersonRecordBatch> chunkBatches;
+    private final Counter chunkHits;
+    private final Counter chunkMisses;
+
+    public FileParsingServiceImpl(@Value("${parser.parallel.enabled:true}") boolean parallelEnabled,
+                                  @Value("${parser.parallel.threads:0}") int threads,
+                                  @Value("${parser.parallel.request-share:0.5}") double requestShare,
+                                  @Value("${parser.parallel.min-chunk-bytes:4194304}") int minChunkBytes,
+                                  @Value("${parser.mmap.min-bytes:67108864}") long mmapMinBytes,
+                                  @Value("${parser.dictionary.max-entries:256}") int dictionaryMaxEntries,
+                                  @Value("${parser.incremental.min-chunk-bytes:65536}") int incrementalMinChunkBytes,
+                                  @Value("${parser.incremental.avg-chunk-bytes:262144}") int incrementalAvgChunkBytes,
+                                  @Value("${parser.incremental.cache-max-bytes:268435456}") long chunkCacheMaxBytes,
+                                  PersonSchema schema,
+                                  MeterRegistry meterRegistry) {
+        this.parallelEnabled = parallelEnabled;
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        //A parse never has more chunks in flight than its share of the pool, so other uploads keep the rest
+        this.chunksPerRequest = Math.max(1, (int) Math.round(parallelism * Math.min(1.0, requestShare)));
+        this.minChunkBytes = minChunkBytes;
+        this.mmapMinBytes = mmapMinBytes;
+        this.dictionaryMaxEntries = dictionaryMaxEntries;
+        this.schema = schema;
+        this.parsePool = parallelEnabled ? new ForkJoinPool(parallelism) : null;
+        this.incrementalMinChunkBytes = incrementalMinChunkBytes;
+        this.incrementalAvgChunkBytes = incrementalAvgChunkBytes;
+        this.chunkBatches = Caffeine.newBuilder()
+                .maximumWeight(chunkCacheMaxBytes)
+                .<ChunkKey, PersonRecordBatch>weigher((key, batch) -> (int) Math.min(Integer.MAX_VALUE, batch.estimatedBytes()))
+                .build();
+
+        this.dictionaryHits = Counter.builder("parser.dictionary.lookups")
+                .tag("result", "hit")
+                .description("Dictionary-coded column values that were already in the dictionary")
+                .register(meterRegistry);
+        this.dictionaryMisses = Counter.builder("parser.dictionary.lookups")
+                .tag("result", "miss")
+                .description("Dictionary-coded column values that had to be added or were left uncoded")
+                .register(meterRegistry);
+        this.chunkHits = Counter.builder("parser.incremental.chunks")
+                .tag("result", "hit")
+                .description("Content-defined chunks whose batch was reused from an earlier parse")
+                .register(meterRegistry);
+        this.chunkMisses = Counter.builder("parser.incremental.chunks")
+                .tag("result", "miss")
+                .description("Content-defined chunks that had to be parsed")
+                .register(meterRegistry);
+        Gauge.builder("parser.dictionary.hit.ratio", this, FileParsingServiceImpl::dictionaryHitRatio)
+                .description("Share of dictionary lookups served by an existing entry since startup")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (parsePool != null) parsePool.shutdownNow();
+    }
 
     /**
-     * Parses a file into a list of ParsedLineResult objects.
+     * Parses a file chunk by chunk, handing each chunk to the sink as a PersonRecordBatch in file order.
+     * Lines follow the configured PersonSchema; they are tokenized on the raw bytes and nothing is decoded,
+     * so batches only hold offsets and primitives.
+     * Large spooled uploads are memory-mapped instead of streamed, and files spanning at least two chunks
+     * are parsed in parallel; the sink is still only called from this thread.
+     * The likes and transport columns are dictionary-coded per parse, so repeated values share one String.
+     * Gzip and deflate uploads are decompressed on the fly while reading; they are never memory-mapped.
+     * A sink that reports itself done stops the parse early, and the input is closed right away.
      * @param file the uploaded MultipartFile
-     * @return list of ParsedLineResult, each containing either a PersonRecord or a parseError
-     * @throws Exception if file reading fails
+     * @param schema the column layout of the file, or null for the configured one
+     * @param validator run on each record row by the parse worker that parsed it, or null
+     * @param sink receives each batch, holding records and parse errors in line order
+     * @throws Exception if file reading fails or the sink rejects a batch
      */
     @Override
-    public List<ParsedLineResult> parseFile(MultipartFile file) throws Exception {
-        List<ParsedLineResult> results = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            int lineNumber = 1;
-
-            while ((line = reader.readLine()) != null) {
-                // Skip empty lines
-                if (line.isBlank()) {
-                    lineNumber++;
-                    continue;
+    public void parseBatches(MultipartFile file, PersonSchema schema, RowValidator validator,
+                             PersonRecordBatchSink sink) throws Exception {
+        long size = file.getSize();
+        Compression compression = compressionOf(file);
+        boolean compressed = compression != Compression.NONE;
+        boolean parallel = isParallel(size, compressed);
+        int chunkBytes = parallel ? minChunkBytes : SEQUENTIAL_CHUNK_BYTES;
+        ParseSettings settings = new ParseSettings(schema != null ? schema : this.schema, newDictionaries(), validator);
+
+        try {
+            if (compressed) {
+                try (InputStream in = compression.decode(observed(file.getInputStream(), sink))) {
+                    parse(new ChunkReader(in, chunkBytes, -1), parallel, settings, sink);
                 }
+                return;
+            }
+
+            if (file instanceof PathMultipartFile spooled && size >= mmapMinBytes) {
+                try (FileChannel channel = FileChannel.open(spooled.getPath(), StandardOpenOption.READ)) {
+                    parse(observed(new MappedChunkReader(channel, chunkBytes), sink), parallel, settings, sink);
+                }
+                return;
+            }
+
+            try (InputStream in = observed(file.getInputStream(), sink)) {
+                parse(new ChunkReader(in, chunkBytes, size), parallel, settings, sink);
+            }
+        } finally {
+            recordDictionaryStats(settings.dictionaries());
+        }
+    }
+
+    /**
+     * Parses a file as content-defined chunks, reusing the cached batch of every chunk whose bytes were parsed before.
+     * Each chunk is parsed on its own from line 1 and cached as such; the batch handed to the sink is a view
+     * moved down to the chunk's first line, so line numbers are those of this file whichever file the batch came from.
+     * Hashing, lookup and parsing of a chunk all run on the parse pool when the file is large enough to go parallel.
+     * Uploads are streamed even when they could be memory-mapped, as content-defined cut points need a sequential scan.
+     * @param file the uploaded MultipartFile
+     * @param schema the column layout of the file, or null for the configured one; cached batches are kept per layout
+     * @param validator run on each record row of a chunk that is parsed, or null; keyed as "validated" in the cache
+     * @param sink receives each batch, holding records and parse errors in line order
+     * @throws Exception if file reading fails or the sink rejects a batch
+     */
+    @Override
+    public void parseBatchesIncremental(MultipartFile file, PersonSchema schema, RowValidator validator,
+                                        PersonRecordBatchSink sink) throws Exception {
+        long size = file.getSize();
+        Compression compression = compressionOf(file);
+        boolean compressed = compression != Compression.NONE;
+        boolean parallel = isParallel(size, compressed);
+        ParseSettings settings = new ParseSettings(schema != null ? schema : this.schema, newDictionaries(), validator);
+        int maxChunkBytes = incrementalAvgChunkBytes * 4;
+
+        InputStream raw = observed(file.getInputStream(), sink);
+        try (InputStream in = compressed ? compression.decode(raw) : raw) {
+            ChunkSource chunks = new ContentDefinedChunker(in, incrementalMinChunkBytes, incrementalAvgChunkBytes,
+                    maxChunkBytes, compressed ? -1 : size);
+            Deque<Future<PersonRecordBatch>> inFlight = new ArrayDeque<>();
+
+            try {
+                Chunk chunk;
+                while (!sink.isDone() && (chunk = chunks.next()) != null) {
+                    Chunk task = chunk;
+                    Callable<PersonRecordBatch> lookup = () -> cachedBatch(task, settings);
+                    if (!parallel) {
+                        sink.accept(lookup.call());
+                        continue;
+                    }
 
-                String[] parts = line.split(DELIMITER);
-                if (parts.length != 7) {
-                    results.add(new ParsedLineResult(lineNumber, line, null, "Incorrect number of fields, expected 7"));
-                    lineNumber++;
-                    continue;
+                    inFlight.addLast(parsePool.submit(lookup));
+                    if (inFlight.size() >= chunksPerRequest) {
+                        emit(inFlight.removeFirst(), sink);
+                    }
                 }
 
-                try {
-                    PersonRecord record = PersonRecord.builder()
-                            .uuid(parts[0].trim())
-                            .id(parts[1].trim())
-                            .name(parts[2].trim())
-                            .likes(parts[3].trim())
-                            .transport(parts[4].trim())
-                            .avgSpeed(Double.parseDouble(parts[5].trim()))
-                            .topSpeed(Double.parseDouble(parts[6].trim()))
-                            .build();
-
-                    results.add(new ParsedLineResult(lineNumber, line, record, null));
-                } catch (NumberFormatException e) {
-                    results.add(new ParsedLineResult(lineNumber, line, null, "Invalid number format in avg_speed or top_speed"));
+                while (!inFlight.isEmpty() && !sink.isDone()) {
+                    emit(inFlight.removeFirst(), sink);
                 }
+            } finally {
+                inFlight.forEach(f -> f.cancel(true));
+            }
+        } finally {
+            recordDictionaryStats(settings.dictionaries());
+        }
+    }
+
+    /**
+     * The batch of a content-defined chunk, from the cache or freshly parsed, moved to the chunk's place in the file.
+     */
+    private PersonRecordBatch cachedBatch(Chunk chunk, ParseSettings settings) {
+        ChunkKey key = ChunkKey.of(chunk, settings.schema(), settings.validator() != null);
+        PersonRecordBatch batch = chunkBatches.getIfPresent(key);
+        if (batch != null) {
+            chunkHits.increment();
+        } else {
+            chunkMisses.increment();
+            batch = newParser(settings).parseChunk(new Chunk(chunk.buffer(), chunk.length(), 1));
+            chunkBatches.put(key, batch);
+        }
+        return batch.withLineOffset(chunk.firstLineNumber() - 1);
+    }
+
+    private void parse(ChunkSource chunks, boolean parallel, ParseSettings settings,
+                       PersonRecordBatchSink sink) throws Exception {
+        if (parallel) {
+            parseParallel(chunks, settings, sink);
+            return;
+        }
+
+        PersonLineParser parser = newParser(settings);
+        Chunk chunk;
+        while (!sink.isDone() && (chunk = chunks.next()) != null) {
+            sink.accept(parser.parseChunk(chunk));
+        }
+    }
+
+    /**
+     * Parses newline-aligned chunks on the parse pool.
+     * At most the parse's share of the pool is busy with its chunks, which bounds memory regardless of file size
+     * and leaves the other threads to other uploads.
+     * Batches are drained strictly in submission order so output stays deterministic.
+     * Once the sink is done, chunks still in flight are cancelled and no more are read.
+     */
+    private void parseParallel(ChunkSource chunks, ParseSettings settings,
+                               PersonRecordBatchSink sink) throws Exception {
+        Deque<Future<PersonRecordBatch>> inFlight = new ArrayDeque<>();
+
+        try {
+            Chunk chunk;
+            while (!sink.isDone() && (chunk = chunks.next()) != null) {
+                Chunk task = chunk;
+                inFlight.addLast(parsePool.submit(() -> newParser(settings).parseChunk(task)));
+
+                if (inFlight.size() >= chunksPerRequest) {
+                    emit(inFlight.removeFirst(), sink);
+                }
+            }
+
+            while (!inFlight.isEmpty() && !sink.isDone()) {
+                emit(inFlight.removeFirst(), sink);
+            }
+        } finally {
+            inFlight.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private static void emit(Future<PersonRecordBatch> future, PersonRecordBatchSink sink) throws Exception {
+        PersonRecordBatch batch;
+        try {
+            batch = future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+
+        sink.accept(batch);
+    }
+
+    /**
+     * Whether a file of this size is worth parsing in parallel. The compressed size understates the content,
+     * so a compressed file is parallel as soon as it is one chunk; a file still arriving (size -1) always is.
+     */
+    private boolean isParallel(long size, boolean compressed) {
+        //With a share of one thread nothing would overlap
+        if (!parallelEnabled || chunksPerRequest <= 1) return false;
+        return size < 0 || size >= (compressed ? 1L : 2L) * minChunkBytes;
+    }
 
-                lineNumber++;
+    //The sink sees the upload's bytes as they are read, before any decompression
+    private static InputStream observed(InputStream in, PersonRecordBatchSink sink) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) sink.onContent(ByteBuffer.wrap(new byte[]{(byte) b}));
+                return b;
             }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) sink.onContent(ByteBuffer.wrap(b, off, read).asReadOnlyBuffer());
+                return read;
+            }
+        };
+    }
+
+    //Mapped chunks follow each other without gaps, so they are the file's bytes as they are
+    private static ChunkSource observed(ChunkSource chunks, PersonRecordBatchSink sink) {
+        return () -> {
+            Chunk chunk = chunks.next();
+            if (chunk != null) sink.onContent(chunk.buffer().slice(0, chunk.length()).asReadOnlyBuffer());
+            return chunk;
+        };
+    }
+
+    private PersonLineParser newParser(ParseSettings settings) {
+        return new PersonLineParser(settings.schema(), settings.dictionaries(), settings.validator());
+    }
+
+    /**
+     * The compression declared for the upload, else the one implied by its content type, else sniffed from its first bytes.
+     */
+    private static Compression compressionOf(MultipartFile file) throws IOException {
+        if (file instanceof ContentEncodedMultipartFile encoded && encoded.getCompression() != Compression.NONE) {
+            return encoded.getCompression();
         }
 
-        return results;
+        Compression byType = Compression.fromContentType(file.getContentType());
+        if (byType != null) return byType;
+
+        try (InputStream in = file.getInputStream()) {
+            return Compression.sniff(in);
+        }
+    }
+
+    /**
+     * Fresh dictionaries for one parse. They are not shared across uploads, so one file's values
+     * can't fill the dictionary for the next, and they are dropped with the parse's batches.
+     */
+    private ValueDictionary[] newDictionaries() {
+        if (dictionaryMaxEntries <= 0) return null;
+
+        ValueDictionary[] dictionaries = new ValueDictionary[PersonRecordBatch.TEXT_COLUMNS];
+        dictionaries[PersonRecordBatch.LIKES] = new ValueDictionary(dictionaryMaxEntries);
+        dictionaries[PersonRecordBatch.TRANSPORT] = new ValueDictionary(dictionaryMaxEntries);
+        return dictionaries;
+    }
+
+    private void recordDictionaryStats(ValueDictionary[] dictionaries) {
+        if (dictionaries == null) return;
+
+        for (ValueDictionary dictionary : dictionaries) {
+            if (dictionary == null) continue;
+            dictionaryHits.increment(dictionary.hits());
+            dictionaryMisses.increment(dictionary.misses());
+        }
+    }
+
+    private double dictionaryHitRatio() {
+        double lookups = dictionaryHits.count() + dictionaryMisses.count();
+        return lookups == 0 ? 0 : dictionaryHits.count() / lookups;
+    }
+
+    //What every parser of one parse shares
+    private record ParseSettings(PersonSchema schema, ValueDictionary[] dictionaries, RowValidator validator) {
+    }
+
+    /**
+     * SHA-256 of a chunk's bytes, as four longs, the layout they were parsed with, and whether its rows were validated.
+     * Layouts are compiled once at startup, so they compare by identity.
+     */
+    private record ChunkKey(long h0, long h1, long h2, long h3, PersonSchema schema, boolean validated) {
+
+        static ChunkKey of(Chunk chunk, PersonSchema schema, boolean validated) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                //Every JRE has to provide SHA-256
+                throw new IllegalStateException(e);
+            }
+            digest.update(chunk.buffer().duplicate().limit(chunk.length()).position(0));
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new ChunkKey(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong(), schema, validated);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,26 @@
 package com.gng.test.service.impl;
 
 import com.gng.test.dto.FileParseErrorDTO;
-import com.gng.test.model.ParsedLineResult;
-import com.gng.test.model.PersonRecord;
-import com.gng.test.model.ParseResult;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.parser.RowValidator;
 import com.gng.test.service.FileParsingService;
 import com.gng.test.service.FileValidationService;
+import com.gng.test.service.ParseResultSink;
+import com.gng.test.service.PersonRecordBatchSink;
 import com.gng.test.service.RecordValidationService;
+import com.gng.test.validation.UuidSet;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.nio.ByteBuffer;
 
 @Service
 public class FileValidationServiceImpl implements FileValidationService {
 
+    //Initial capacity of the duplicate uuid set; it grows with the file
+    private static final int EXPECTED_UUIDS = 1024;
+
     private final FileParsingService parsingService;
     private final RecordValidationService validationService;
 
@@ -26,56 +31,77 @@ public class FileValidationServiceImpl implements FileValidationService {
     }
 
     /**
-     * Coordinates file parsing and optional validation.
+     * Coordinates file parsing and optional validation, one columnar batch at a time.
+     * Validation is fused into the parse: each record is checked by the worker that parsed it,
+     * and invalid rows come back flagged in the batch, so every row is classified in a single walk.
+     * Nothing but the batch currently in flight is held in memory.
+     * Once the sink is done, the rest of the batch is skipped and the parse stops before the next one.
+     * Duplicate uuids are tracked in a UuidSet as the walk goes, since only this thread sees the lines in order.
+     * That is also why they are checked here and not cached with the batches of an incremental parse.
      * @param file The uploaded file
+     * @param schema The column layout of the file, or null for the configured one
      * @param validate Whether validation should be applied (flag=true)
-     * @return ParseResult containing valid records and any errors
+     * @param checkDuplicates Whether a uuid seen on an earlier line makes a record invalid
+     * @param incremental Whether to reuse the cached batches of content-defined chunks parsed before
+     * @param sink receives each valid record and every parse or validation error, in line order
      */
     @Override
-    public ParseResult parseAndValidate(MultipartFile file, boolean validate) throws Exception {
-
-        //Parse the file (basic structure validation and conversion to records)
-        List<ParsedLineResult> parsedLines = parsingService.parseFile(file);
+    public void parseAndValidate(MultipartFile file, PersonSchema schema, boolean validate, boolean checkDuplicates,
+                                 boolean incremental, ParseResultSink sink) throws Exception {
+        RowValidator validator = validate ? validationService::validateRow : null;
+        UuidSet uuids = checkDuplicates ? new UuidSet(EXPECTED_UUIDS) : null;
 
-        //Collect parsing-level errors with line content
-        List<FileParseErrorDTO> parseErrors = parsedLines.stream()
-                .filter(p -> p.getParseError() != null)
-                .map(p -> new FileParseErrorDTO(
-                        p.getLineNumber(),
-                        p.getRawLine(),       // <-- include raw line content
-                        p.getParseError()     // error message
-                ))
-                .collect(Collectors.toList());
+        PersonRecordBatchSink batchSink = new PersonRecordBatchSink() {
+            @Override
+            public void accept(PersonRecordBatch batch) throws Exception {
+                //Violations are recorded in row order, so one cursor follows the walk
+                int nextViolation = 0;
 
-        //Collect successfully parsed records
-        List<PersonRecord> parsedRecords = parsedLines.stream()
-                .map(ParsedLineResult::getRecord)
-                .filter(r -> r != null)
-                .collect(Collectors.toList());
+                for (int row = 0; row < batch.size() && !sink.isDone(); row++) {
+                    //Parsing-level error, reported with the raw line content
+                    String parseError = batch.parseError(row);
+                    if (parseError != null) {
+                        sink.onError(new FileParseErrorDTO(batch.lineNumber(row), batch.rawLine(row), parseError));
+                        continue;
+                    }
 
-        //If validation is OFF, just return parsed results
-        if (!validate) {
-            return new ParseResult(parsedRecords, parseErrors);
-        }
+                    //Malformed uuids are never duplicates; validation reports them when enabled
+                    int firstLine = uuids == null ? UuidSet.ADDED : uuids.add(batch.buffer(),
+                            batch.textStart(row, PersonRecordBatch.UUID), batch.textEnd(row, PersonRecordBatch.UUID),
+                            batch.lineNumber(row));
+                    boolean duplicate = firstLine > 0;
 
-        //If validation is ON, run record-level validation
-        List<FileParseErrorDTO> validationErrors = validationService.validateRecords(parsedLines);
+                    //A record is only emitted when it has no validation errors
+                    if (!batch.isInvalid(row) && !duplicate) {
+                        sink.onRecord(batch, row);
+                        continue;
+                    }
 
-        //Merge parsing + validation errors
-        parseErrors.addAll(validationErrors);
+                    String rawLine = batch.rawLine(row);
+                    while (nextViolation < batch.violationCount() && batch.violationRow(nextViolation) == row) {
+                        sink.onError(new FileParseErrorDTO(batch.lineNumber(row), rawLine, batch.violationMessage(nextViolation++)));
+                    }
+                    if (duplicate) {
+                        sink.onError(new FileParseErrorDTO(batch.lineNumber(row), rawLine, "uuid: Duplicate of line " + firstLine));
+                    }
+                }
+            }
 
-        //Determine which records are valid (no parse or validation errors)
-        List<Integer> invalidLineNumbers = parseErrors.stream()
-                .map(FileParseErrorDTO::getLineNumber)
-                .distinct()
-                .toList();
+            @Override
+            public boolean isDone() {
+                return sink.isDone();
+            }
 
-        List<PersonRecord> validRecords = parsedLines.stream()
-                .filter(p -> p.getParseError() == null && !invalidLineNumbers.contains(p.getLineNumber()))
-                .map(ParsedLineResult::getRecord)
-                .collect(Collectors.toList());
+            @Override
+            public void onContent(ByteBuffer content) {
+                sink.onContent(content);
+            }
+        };
 
-        //Return the combined result
-        return new ParseResult(validRecords, parseErrors);
+        if (incremental) {
+            parsingService.parseBatchesIncremental(file, schema, validator, batchSink);
+        } else {
+            parsingService.parseBatches(file, schema, validator, batchSink);
+        }
     }
-}
\ No newline at end of file
+}
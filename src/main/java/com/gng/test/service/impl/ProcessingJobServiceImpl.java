@@ -0,0 +1,192 @@
+package com.gng.test.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.gng.test.model.ContentEncodedMultipartFile;
+import com.gng.test.model.PathMultipartFile;
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.parser.Compression;
+import com.gng.test.service.AdmissionPermit;
+import com.gng.test.service.ErrorBudgetSink;
+import com.gng.test.service.FileValidationService;
+import com.gng.test.service.OutcomeFileProcessor;
+import com.gng.test.service.ProcessingJobService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ProcessingJobServiceImpl implements ProcessingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingJobServiceImpl.class);
+
+    private final FileValidationService fileValidationService;
+    private final ObjectMapper objectMapper;
+    private final Path jobDir;
+    private final ThreadPoolExecutor jobExecutor;
+    private final Cache<String, ProcessingJob> jobs;
+
+    public ProcessingJobServiceImpl(FileValidationService fileValidationService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${process.jobs.dir:${java.io.tmpdir}/file-parser-jobs}") Path jobDir,
+                                    @Value("${process.jobs.threads:2}") int threads,
+                                    @Value("${process.jobs.queue-capacity:32}") int queueCapacity,
+                                    @Value("${process.jobs.ttl-seconds:3600}") long ttlSeconds) {
+        this.fileValidationService = fileValidationService;
+        this.objectMapper = objectMapper;
+        this.jobDir = jobDir;
+
+        //Bounded on both ends: a burst beyond the queue is rejected instead of piling up uploads on disk
+        AtomicInteger threadCount = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "processing-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        //The TTL only starts once a job is done; a queued or running job never expires
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, ProcessingJob>() {
+                    @Override
+                    public long expireAfterCreate(String id, ProcessingJob job, long currentTime) {
+                        return job.isDone() ? ttlNanos : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, ProcessingJob job, long currentTime, long currentDuration) {
+                        return job.isDone() ? ttlNanos : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, ProcessingJob job, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .<String, ProcessingJob>removalListener((id, job, cause) -> {
+                    //A job is written back when it completes; that replaces it with itself
+                    if (cause != RemovalCause.REPLACED) deleteResult(job);
+                })
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Copies the upload into the job directory, since the container deletes its own copy when the request ends,
+     * and queues the job on the bounded job executor.
+     * @param file the uploaded MultipartFile
+     * @param options how to process it
+     * @param permit the request's admission permit, released once the job is done
+     * @return the queued job
+     * @throws RejectedExecutionException if the job queue is full; nothing is kept in that case
+     */
+    @Override
+    public ProcessingJob submit(MultipartFile file, ProcessingOptions options, AdmissionPermit permit) throws IOException {
+        ProcessingJob job = new ProcessingJob(UUID.randomUUID().toString(), options);
+
+        Files.createDirectories(jobDir);
+        Path upload = jobDir.resolve(job.getId() + ".upload");
+        try {
+            file.transferTo(upload);
+            MultipartFile input = new PathMultipartFile(upload, file.getName(), file.getOriginalFilename(), file.getContentType());
+
+            jobs.put(job.getId(), job);
+            jobExecutor.execute(() -> run(job, input, upload, permit));
+        } catch (IOException | RuntimeException e) {
+            permit.close();
+            jobs.invalidate(job.getId());
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+
+        return job;
+    }
+
+    /**
+     * @param id the job id
+     * @return the job, or null if there is no such job or its result has expired
+     */
+    @Override
+    public ProcessingJob find(String id) {
+        return jobs.getIfPresent(id);
+    }
+
+    /**
+     * Parses and validates the upload in a single pass, writing records to the outcome file as they come.
+     * The job's share of the admission budget is held until then, queued or running.
+     */
+    private void run(ProcessingJob job, MultipartFile upload, Path uploadFile, AdmissionPermit permit) {
+        ProcessingOptions options = job.getOptions();
+        Path outcomeFile = jobDir.resolve(job.getId() + "." + options.format().fileName());
+        Path errorsFile = jobDir.resolve(job.getId() + ".errors.json");
+        job.started();
+
+        try {
+            MultipartFile input = options.compression() == Compression.NONE
+                    ? upload
+                    : new ContentEncodedMultipartFile(upload, options.compression());
+
+            ErrorBudgetSink sink = OutcomeFileProcessor.process(fileValidationService, input, options,
+                    outcomeFile, errorsFile, objectMapper);
+            //Only the result is kept once the job is done
+            deleteQuietly(uploadFile);
+
+            if (!sink.hasErrors()) {
+                job.succeeded(outcomeFile);
+            } else {
+                job.invalid(errorsFile, sink.getErrors().size(), sink.isTruncated());
+            }
+        } catch (Exception e) {
+            logger.error("Processing job {} failed", job.getId(), e);
+            deleteQuietly(uploadFile);
+            deleteQuietly(outcomeFile);
+            deleteQuietly(errorsFile);
+            job.failed(e.getMessage());
+        } finally {
+            permit.close();
+            //Writing the job back starts its TTL
+            jobs.put(job.getId(), job);
+        }
+    }
+
+    private static void deleteResult(ProcessingJob job) {
+        if (job != null && job.getResultFile() != null) {
+            deleteQuietly(job.getResultFile());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", path, e);
+        }
+    }
+}
@@ -1,48 +1,30 @@
 package com.gng.test.service.impl;
 
-import com.gng.test.dto.FileParseErrorDTO;
-import com.gng.test.model.ParsedLineResult;
-import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
 import com.gng.test.service.RecordValidationService;
-import jakarta.validation.ConstraintViolation;
+import com.gng.test.validation.PersonRecordValidator;
 import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-
 @Service
 public class RecordValidationServiceImpl implements RecordValidationService {
 
-    private final Validator validator;
+    private final PersonRecordValidator recordValidator;
 
     public RecordValidationServiceImpl(Validator validator) {
-        this.validator = validator;
+        //PersonRecord's constraints are compiled once; Bean Validation only backs what can't be compiled
+        this.recordValidator = PersonRecordValidator.compile(validator);
     }
 
     /**
-     * Validates a list of parsed records.
-     * @param parsedLines list of ParsedLineResult objects
-     * @return list of FileParseErrorDTO representing validation errors
+     * Validates a record row straight from the batch's columns, flagging it on the batch if invalid.
+     * @param batch the batch being parsed
+     * @param row a row holding a parsed record
      */
     @Override
-    public List<FileParseErrorDTO> validateRecords(List<ParsedLineResult> parsedLines) {
-        List<FileParseErrorDTO> validationErrors = new ArrayList<>();
-
-        for (ParsedLineResult lineResult : parsedLines) {
-            PersonRecord record = lineResult.getRecord();
-
-            //Skip lines that already have parse errors
-            if (record == null) continue;
-
-            Set<ConstraintViolation<PersonRecord>> violations = validator.validate(record);
-            for (ConstraintViolation<PersonRecord> violation : violations) {
-                String message = violation.getPropertyPath() + ": " + violation.getMessage();
-                validationErrors.add(new FileParseErrorDTO(lineResult.getLineNumber(), lineResult.getRawLine(), message));
-            }
+    public void validateRow(PersonRecordBatch batch, int row) {
+        for (String message : recordValidator.validate(batch, row)) {
+            batch.addViolation(row, message);
         }
-
-        return validationErrors;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,377 @@
+package com.gng.test.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.gng.test.model.CachedResult;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.ResultCacheKey;
+import com.gng.test.service.ContentDigest;
+import com.gng.test.service.ResultCacheService;
+import com.gng.test.service.ResultRecording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Service
+public class ResultCacheServiceImpl implements ResultCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCacheServiceImpl.class);
+    private static final String DISK_FILE_PREFIX = "result-";
+    private static final String DISK_FILE_SUFFIX = ".bin";
+    //Bytes from each end of an upload that tell whether it may have been seen before
+    private static final int EDGE_BYTES = 64 * 1024;
+    private static final int MAX_SEEN_UPLOADS = 100_000;
+
+    private final boolean enabled;
+    private final int maxMemoryEntryBytes;
+    //Null when the disk tier is off
+    private final Path diskDir;
+    private final Cache<ResultCacheKey, CachedResult> memoryTier;
+    private final Cache<ResultCacheKey, CachedResult> diskTier;
+    //Uploads processed within the TTL, by size, ends and options; only these are worth hashing before the parse
+    private final Cache<Probe, Boolean> seen;
+
+    public ResultCacheServiceImpl(@Value("${process.result-cache.enabled:true}") boolean enabled,
+                                  @Value("${process.result-cache.ttl-seconds:600}") long ttlSeconds,
+                                  @Value("${process.result-cache.memory.max-bytes:67108864}") long maxMemoryBytes,
+                                  @Value("${process.result-cache.memory.max-entry-bytes:4194304}") int maxMemoryEntryBytes,
+                                  @Value("${process.result-cache.disk.enabled:false}") boolean diskEnabled,
+                                  @Value("${process.result-cache.disk.dir:${java.io.tmpdir}/file-parser-results}") Path diskDir,
+                                  @Value("${process.result-cache.disk.max-bytes:1073741824}") long maxDiskBytes) throws IOException {
+        this.enabled = enabled;
+        this.maxMemoryEntryBytes = maxMemoryEntryBytes;
+        this.diskDir = enabled && diskEnabled ? diskDir : null;
+
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.memoryTier = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .<ResultCacheKey, CachedResult>weigher((key, result) -> weight(result))
+                .expireAfterWrite(ttl)
+                .build();
+        this.diskTier = Caffeine.newBuilder()
+                .maximumWeight(maxDiskBytes)
+                .<ResultCacheKey, CachedResult>weigher((key, result) -> weight(result))
+                .expireAfterWrite(ttl)
+                .scheduler(Scheduler.systemScheduler())
+                //Also on REPLACED: two concurrent misses for the same upload each write their own file
+                .<ResultCacheKey, CachedResult>removalListener((key, result, cause) -> {
+                    if (result != null) deleteQuietly(result.file());
+                })
+                .build();
+
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(MAX_SEEN_UPLOADS)
+                .expireAfterWrite(ttl)
+                .build();
+
+        if (this.diskDir != null) {
+            Files.createDirectories(this.diskDir);
+            deleteLeftovers(this.diskDir);
+        }
+    }
+
+    /**
+     * Hashes the upload exactly as it was received, streaming it through SHA-256 without holding it in memory.
+     * @param file the uploaded MultipartFile
+     * @param options how it is to be processed
+     * @return the key of its result, or null if the cache is disabled
+     */
+    @Override
+    public ResultCacheKey keyFor(MultipartFile file, ProcessingOptions options) throws IOException {
+        if (!enabled) return null;
+
+        ContentDigest digest = new ContentDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = file.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return new ResultCacheKey(digest.finish(), options);
+    }
+
+    /**
+     * A first upload, the common case, costs a read of its two ends here rather than a full read.
+     * @param file the uploaded MultipartFile
+     * @param options how it is to be processed
+     * @return the key of its result if it looks like an upload seen within the TTL, else null
+     */
+    @Override
+    public ResultCacheKey lookupKey(MultipartFile file, ProcessingOptions options) throws IOException {
+        if (!enabled || file.getSize() < 0) return null;
+        if (seen.getIfPresent(probe(file, options)) == null) return null;
+        return keyFor(file, options);
+    }
+
+    @Override
+    public ContentDigest newDigest() {
+        return enabled ? new ContentDigest() : null;
+    }
+
+    /**
+     * Also marks the upload as seen, so the next one like it is looked up before it is parsed.
+     * @param file the upload the digest was taken from
+     * @param options how it was processed
+     * @param digest fed with the upload's bytes by the parse, or null
+     * @return the key of its result, or null for a null digest
+     */
+    @Override
+    public ResultCacheKey keyOf(MultipartFile file, ProcessingOptions options, ContentDigest digest) throws IOException {
+        if (digest == null || file.getSize() < 0) return null;
+
+        //A parse that stopped early, or a decompressor that didn't read past the end of its data, saw only a prefix
+        ResultCacheKey key = digest.bytes() == file.getSize()
+                ? new ResultCacheKey(digest.finish(), options)
+                : keyFor(file, options);
+        seen.put(probe(file, options), Boolean.TRUE);
+        return key;
+    }
+
+    /**
+     * Looks in memory first, then on disk.
+     * @param key the key from {@link #keyFor}
+     * @return the cached result, or null on a miss or a null key
+     */
+    @Override
+    public CachedResult get(ResultCacheKey key) {
+        if (key == null) return null;
+
+        CachedResult result = memoryTier.getIfPresent(key);
+        if (result != null) return result;
+
+        result = diskTier.getIfPresent(key);
+        if (result != null && !Files.exists(result.file())) {
+            //Removed from under us; treat it as a miss
+            diskTier.invalidate(key);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * @param key the key from {@link #keyFor}, or null
+     * @param errorReport the error list as JSON
+     * @param errorsTruncated whether the list stopped at maxErrors
+     */
+    @Override
+    public void putErrors(ResultCacheKey key, byte[] errorReport, boolean errorsTruncated) {
+        if (key == null) return;
+
+        if (errorReport.length <= maxMemoryEntryBytes) {
+            memoryTier.put(key, new CachedResult(false, errorsTruncated, errorReport, null, errorReport.length));
+        } else if (diskDir != null) {
+            Path file = null;
+            try {
+                file = Files.createTempFile(diskDir, DISK_FILE_PREFIX, DISK_FILE_SUFFIX);
+                Files.write(file, errorReport);
+                diskTier.put(key, new CachedResult(false, errorsTruncated, null, file, errorReport.length));
+            } catch (IOException e) {
+                logger.warn("Could not cache error report on disk", e);
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    /**
+     * Outcomes up to the memory entry limit are kept in memory; larger ones spill to the disk tier,
+     * or aren't cached when it is off.
+     * @param key the key from {@link #keyFor}, or null
+     * @param out the client's stream
+     * @return the recording to write the outcome through
+     */
+    @Override
+    public ResultRecording record(ResultCacheKey key, OutputStream out) {
+        if (key == null) return new PassThrough(out);
+        return new Recording(key, out);
+    }
+
+    private static int weight(CachedResult result) {
+        return (int) Math.min(Integer.MAX_VALUE, result.size());
+    }
+
+    //The size and a hash of the first and last EDGE_BYTES; the middle is skipped, not read
+    private static Probe probe(MultipartFile file, ProcessingOptions options) throws IOException {
+        long size = file.getSize();
+        ContentDigest edges = new ContentDigest();
+        try (InputStream in = file.getInputStream()) {
+            if (size <= 2L * EDGE_BYTES) {
+                byte[] all = in.readAllBytes();
+                edges.update(all, 0, all.length);
+            } else {
+                byte[] head = in.readNBytes(EDGE_BYTES);
+                in.skipNBytes(size - 2L * EDGE_BYTES);
+                byte[] tail = in.readNBytes(EDGE_BYTES);
+                edges.update(head, 0, head.length);
+                edges.update(tail, 0, tail.length);
+            }
+        }
+        return new Probe(size, edges.finish(), options);
+    }
+
+    //The disk tier's index doesn't survive a restart, so files from an earlier run can't be found again
+    private static void deleteLeftovers(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, DISK_FILE_PREFIX + "*" + DISK_FILE_SUFFIX)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", path, e);
+        }
+    }
+
+    private static final class PassThrough implements ResultRecording {
+
+        private final OutputStream out;
+
+        PassThrough(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public OutputStream stream() {
+            return out;
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Tees the outcome into a buffer, then into a disk tier file once it outgrows the memory entry limit.
+     * A failure on the cache side only gives up the copy; the client's response carries on.
+     */
+    private final class Recording implements ResultRecording {
+
+        private final ResultCacheKey key;
+        private final OutputStream stream;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        private Path spillFile;
+        private OutputStream spill;
+        private long size;
+        private boolean abandoned;
+        private boolean committed;
+
+        Recording(ResultCacheKey key, OutputStream out) {
+            this.key = key;
+            //Closing this only closes the client's side; the copy is settled by commit() or close()
+            this.stream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    capture(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    capture(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream stream() {
+            return stream;
+        }
+
+        @Override
+        public void commit() {
+            if (abandoned || committed) return;
+            committed = true;
+
+            if (spill == null) {
+                memoryTier.put(key, new CachedResult(true, false, buffer.toByteArray(), null, size));
+                buffer = null;
+                return;
+            }
+            try {
+                spill.close();
+                diskTier.put(key, new CachedResult(true, false, null, spillFile, size));
+            } catch (IOException e) {
+                logger.warn("Could not cache outcome file on disk", e);
+                deleteQuietly(spillFile);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!committed) abandon();
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (abandoned || committed) return;
+            size += len;
+            try {
+                if (spill != null) {
+                    spill.write(b, off, len);
+                } else if (size <= maxMemoryEntryBytes) {
+                    buffer.write(b, off, len);
+                } else if (diskDir != null) {
+                    spillFile = Files.createTempFile(diskDir, DISK_FILE_PREFIX, DISK_FILE_SUFFIX);
+                    spill = new BufferedOutputStream(Files.newOutputStream(spillFile), 64 * 1024);
+                    buffer.writeTo(spill);
+                    buffer = null;
+                    spill.write(b, off, len);
+                } else {
+                    abandon();
+                }
+            } catch (IOException e) {
+                logger.warn("Could not cache outcome file on disk", e);
+                abandon();
+            }
+        }
+
+        private void abandon() {
+            abandoned = true;
+            buffer = null;
+            if (spill != null) {
+                try {
+                    spill.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close {}", spillFile, e);
+                }
+                spill = null;
+            }
+            deleteQuietly(spillFile);
+        }
+    }
+
+    private record Probe(long size, String edges, ProcessingOptions options) {
+    }
+}
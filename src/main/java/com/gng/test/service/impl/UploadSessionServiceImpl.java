@@ -0,0 +1,304 @@
+package com.gng.test.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.gng.test.model.ContentEncodedMultipartFile;
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.UploadPartsMultipartFile;
+import com.gng.test.model.UploadSession;
+import com.gng.test.parser.Compression;
+import com.gng.test.service.AdmissionPermit;
+import com.gng.test.service.ErrorBudgetSink;
+import com.gng.test.service.FileValidationService;
+import com.gng.test.service.OutcomeFileProcessor;
+import com.gng.test.service.UploadSessionService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+@Service
+public class UploadSessionServiceImpl implements UploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionServiceImpl.class);
+    private static final int MAX_PARTS = 10_000;
+    //Missing parts listed in the error of an early complete
+    private static final int MISSING_PARTS_SHOWN = 20;
+
+    private final FileValidationService fileValidationService;
+    private final ObjectMapper objectMapper;
+    private final Path uploadDir;
+    private final Duration idleTimeout;
+    private final Duration completeWait;
+    private final Semaphore openSessions;
+    private final ExecutorService sessionThreads;
+    private final Cache<String, UploadSession> sessions;
+
+    public UploadSessionServiceImpl(FileValidationService fileValidationService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${process.uploads.dir:${java.io.tmpdir}/file-parser-uploads}") Path uploadDir,
+                                    @Value("${process.uploads.max-sessions:16}") int maxSessions,
+                                    @Value("${process.uploads.idle-timeout-seconds:900}") long idleTimeoutSeconds,
+                                    @Value("${process.uploads.complete-wait-seconds:30}") long completeWaitSeconds,
+                                    @Value("${process.uploads.ttl-seconds:3600}") long ttlSeconds) {
+        this.fileValidationService = fileValidationService;
+        this.objectMapper = objectMapper;
+        this.uploadDir = uploadDir;
+        this.idleTimeout = Duration.ofSeconds(idleTimeoutSeconds);
+        this.completeWait = Duration.ofSeconds(completeWaitSeconds);
+        this.openSessions = new Semaphore(maxSessions);
+
+        //Each session's parse spends most of its life waiting for the next part, so it gets a virtual thread of its own
+        this.sessionThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upload-session-", 1).factory());
+
+        //As with jobs, the TTL only starts once the session's parse is done
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.sessions = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, UploadSession>() {
+                    @Override
+                    public long expireAfterCreate(String id, UploadSession session, long currentTime) {
+                        return session.getJob().isDone() ? ttlNanos : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, UploadSession session, long currentTime, long currentDuration) {
+                        return session.getJob().isDone() ? ttlNanos : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, UploadSession session, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .<String, UploadSession>removalListener((id, session, cause) -> {
+                    if (cause != RemovalCause.REPLACED && session != null) deleteDirectory(session.getDir());
+                })
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sessionThreads.shutdownNow();
+    }
+
+    /**
+     * Opens a session directory and starts the session's parse, which reads the parts back to back as they land.
+     * @param options how the upload is to be processed
+     * @param permit the request's admission permit, released once the session's parse is done
+     * @return the new session
+     * @throws RejectedExecutionException if max-sessions sessions are still receiving or parsing
+     */
+    @Override
+    public UploadSession start(ProcessingOptions options, AdmissionPermit permit) throws IOException {
+        if (!openSessions.tryAcquire()) {
+            permit.close();
+            throw new RejectedExecutionException("Too many open upload sessions");
+        }
+
+        String id = UUID.randomUUID().toString();
+        UploadSession session = new UploadSession(id, options, uploadDir.resolve(id));
+        try {
+            Files.createDirectories(session.getDir());
+            sessions.put(id, session);
+            sessionThreads.execute(() -> run(session, permit));
+        } catch (IOException | RuntimeException e) {
+            permit.close();
+            openSessions.release();
+            sessions.invalidate(id);
+            throw e;
+        }
+        return session;
+    }
+
+    /**
+     * Receives the part into a temporary file first, so a request that fails half-way leaves nothing behind
+     * and the part can simply be sent again.
+     * @param id the session id
+     * @param part the part number, from 1
+     * @param content the part's bytes
+     * @return the session, or null if there is no such session
+     */
+    @Override
+    public UploadSession putPart(String id, int part, InputStream content) throws IOException {
+        UploadSession session = sessions.getIfPresent(id);
+        if (session == null) return null;
+
+        checkReceiving(session);
+        int totalParts = session.getTotalParts();
+        if (part < 1 || part > MAX_PARTS || totalParts >= 0 && part > totalParts) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + (totalParts >= 0 ? totalParts : MAX_PARTS));
+        }
+        //A retry of a part that did make it; the client just never saw the response
+        if (session.hasPart(part)) return session;
+
+        Path received = Files.createTempFile(session.getDir(), "part-" + part + "-", ".tmp");
+        try {
+            long size = Files.copy(content, received, StandardCopyOption.REPLACE_EXISTING);
+            session.addPart(part, received, size);
+        } finally {
+            Files.deleteIfExists(received);
+        }
+        return session;
+    }
+
+    /**
+     * @param id the session id
+     * @param totalParts the number of parts the upload was cut into
+     * @return the session, done unless its parse took longer than complete-wait-seconds
+     */
+    @Override
+    public UploadSession complete(String id, int totalParts) throws InterruptedException {
+        UploadSession session = sessions.getIfPresent(id);
+        if (session == null) return null;
+
+        if (totalParts < 1 || totalParts > MAX_PARTS) {
+            throw new IllegalArgumentException("Number of parts must be between 1 and " + MAX_PARTS);
+        }
+        if (!session.getJob().isDone()) {
+            List<Integer> missing = session.complete(totalParts);
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Missing parts: " + missing.stream()
+                        .limit(MISSING_PARTS_SHOWN)
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(", ")) + (missing.size() > MISSING_PARTS_SHOWN ? ", ..." : ""));
+            }
+        }
+
+        session.awaitFinished(completeWait);
+        return session;
+    }
+
+    /**
+     * @param id the session id
+     * @return the session, or null if there is no such session or its result has expired
+     */
+    @Override
+    public UploadSession find(String id) {
+        return sessions.getIfPresent(id);
+    }
+
+    /**
+     * @param id the session id
+     * @return whether there was such a session
+     */
+    @Override
+    public boolean abort(String id) {
+        UploadSession session = sessions.getIfPresent(id);
+        if (session == null) return false;
+
+        session.abort();
+        sessions.invalidate(id);
+        return true;
+    }
+
+    /**
+     * Parses and validates the parts as they arrive, writing the result into the session directory.
+     * Once the error budget runs out the parse stops right away, and later parts are refused.
+     * The session's share of the admission budget is held until then, however long the parts take to come.
+     */
+    private void run(UploadSession session, AdmissionPermit permit) {
+        ProcessingJob job = session.getJob();
+        ProcessingOptions options = job.getOptions();
+        Path outcomeFile = session.getDir().resolve(options.format().fileName());
+        Path errorsFile = session.getDir().resolve("errors.json");
+        job.started();
+
+        try {
+            MultipartFile parts = new UploadPartsMultipartFile(session, idleTimeout);
+            MultipartFile input = options.compression() == Compression.NONE
+                    ? parts
+                    : new ContentEncodedMultipartFile(parts, options.compression());
+
+            ErrorBudgetSink sink = OutcomeFileProcessor.process(fileValidationService, input, options,
+                    outcomeFile, errorsFile, objectMapper);
+            if (!sink.hasErrors()) {
+                job.succeeded(outcomeFile);
+            } else {
+                job.invalid(errorsFile, sink.getErrors().size(), sink.isTruncated());
+            }
+        } catch (Exception e) {
+            if (session.isAborted()) {
+                logger.info("Upload session {} aborted", session.getId());
+            } else {
+                logger.error("Upload session {} failed", session.getId(), e);
+            }
+            deleteQuietly(outcomeFile);
+            deleteQuietly(errorsFile);
+            job.failed(e.getMessage());
+        } finally {
+            permit.close();
+            openSessions.release();
+            deleteParts(session.getDir());
+            session.finished();
+            //Writing the session back starts its TTL; an aborted one was already dropped
+            if (session.isAborted()) {
+                deleteDirectory(session.getDir());
+            } else {
+                sessions.put(session.getId(), session);
+            }
+        }
+    }
+
+    private static void checkReceiving(UploadSession session) {
+        ProcessingJob job = session.getJob();
+        if (job.isDone()) {
+            throw new IllegalStateException("Upload session is already " + job.getStatus().name());
+        }
+    }
+
+    //Only the result is kept once the session is done
+    private static void deleteParts(Path dir) {
+        //Already gone if the session was aborted
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(dir, "part-*")) {
+            for (Path part : parts) {
+                deleteQuietly(part);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list {}", dir, e);
+        }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list {}", dir, e);
+        }
+        deleteQuietly(dir);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", path, e);
+        }
+    }
+}
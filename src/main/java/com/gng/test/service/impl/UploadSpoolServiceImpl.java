@@ -0,0 +1,46 @@
+package com.gng.test.service.impl;
+
+import com.gng.test.model.PathMultipartFile;
+import com.gng.test.model.SpooledUpload;
+import com.gng.test.service.UploadSpoolService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Service
+public class UploadSpoolServiceImpl implements UploadSpoolService {
+
+    @Value("${parser.mmap.min-bytes:67108864}")
+    private long mmapMinBytes;
+
+    @Value("${upload.spool.dir:${java.io.tmpdir}}")
+    private Path spoolDir;
+
+    /**
+     * Moves large uploads into a file we own so the parser can memory-map it.
+     * For disk-backed multipart parts transferTo is a rename of the container's temp file, not a copy.
+     * @param file the uploaded MultipartFile
+     * @return the upload to use for the rest of the request; close it once done
+     */
+    @Override
+    public SpooledUpload spool(MultipartFile file) throws IOException {
+        if (file instanceof PathMultipartFile || file.getSize() < mmapMinBytes) {
+            return SpooledUpload.inPlace(file);
+        }
+
+        Files.createDirectories(spoolDir);
+        Path target = Files.createTempFile(spoolDir, "upload-", ".dat");
+        try {
+            file.transferTo(target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+
+        return SpooledUpload.spooled(new PathMultipartFile(target, file.getName(), file.getOriginalFilename(), file.getContentType()));
+    }
+}
@@ -0,0 +1,91 @@
+package com.gng.test.validation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A regex of the form {@code ^[class]{n}$} or {@code ^[class]{min,max}$} over ASCII characters,
+ * matched with a length check and a table lookup per character instead of a regex engine.
+ * Since the class is ASCII-only, a UTF-8 byte string matches exactly when its decoded text does.
+ */
+final class AsciiShape {
+
+    private final boolean[] allowed;
+    private final int minLength;
+    private final int maxLength;
+
+    private AsciiShape(boolean[] allowed, int minLength, int maxLength) {
+        this.allowed = allowed;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the shape, or null if the regex is anything more than an anchored, quantified ASCII class
+     */
+    static AsciiShape parse(String regex) {
+        int i = 0;
+        int end = regex.length();
+        if (regex.startsWith("^")) i++;
+        if (regex.endsWith("$") && !regex.endsWith("\\$")) end--;
+        if (i >= end || regex.charAt(i) != '[') return null;
+        i++;
+        if (i < end && regex.charAt(i) == '^') return null;
+
+        boolean[] allowed = new boolean[128];
+        boolean closed = false;
+        while (i < end) {
+            char c = regex.charAt(i++);
+            if (c == ']') {
+                closed = true;
+                break;
+            }
+            if (c == '[' || c == '&') return null;
+            if (c == '\\') {
+                if (i >= end || Character.isLetterOrDigit(regex.charAt(i))) return null;
+                c = regex.charAt(i++);
+            }
+
+            char last = c;
+            //A '-' is a range unless it is the last character of the class
+            if (i + 1 < end && regex.charAt(i) == '-' && regex.charAt(i + 1) != ']') {
+                last = regex.charAt(i + 1);
+                if (last == '\\' || last == '[') return null;
+                i += 2;
+            }
+            if (c > last || last > 0x7F) return null;
+            for (char allowedChar = c; allowedChar <= last; allowedChar++) {
+                allowed[allowedChar] = true;
+            }
+        }
+        if (!closed) return null;
+
+        String quantifier = regex.substring(i, end);
+        if (!quantifier.matches("\\{\\d{1,9}(,\\d{1,9})?}")) return null;
+        String[] bounds = quantifier.substring(1, quantifier.length() - 1).split(",");
+        int min = Integer.parseInt(bounds[0]);
+        int max = bounds.length == 1 ? min : Integer.parseInt(bounds[1]);
+        if (min > max) return null;
+
+        return new AsciiShape(allowed, min, max);
+    }
+
+    boolean matches(CharSequence text) {
+        int length = text.length();
+        if (length < minLength || length > maxLength) return false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c > 0x7F || !allowed[c]) return false;
+        }
+        return true;
+    }
+
+    boolean matches(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length < minLength || length > maxLength) return false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < 0 || !allowed[b]) return false;
+        }
+        return true;
+    }
+}
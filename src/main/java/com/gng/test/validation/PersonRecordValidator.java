@@ -0,0 +1,352 @@
+package com.gng.test.validation;
+
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.parser.Utf8;
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PersonRecord's constraint annotations compiled into direct checks, so validating a record doesn't go
+ * through Bean Validation's metadata, message interpolation or regex engine.
+ * <p>
+ * {@code @NotBlank} becomes a scan for a non-whitespace byte, {@code @DecimalMin} a primitive compare, and a
+ * {@code @Pattern} of the form {@code ^[class]{n}$} (like the UUID one) a length check plus a per-byte lookup;
+ * other patterns are compiled once and matched on the decoded text. Batch rows are checked straight from the
+ * batch's bytes and primitive columns, so this can run inline in the parse loop without materializing anything.
+ * A property with a constraint or message that can't be compiled is handed to Bean Validation as a whole,
+ * so the outcome always matches {@code validator.validate(record)}.
+ * <p>
+ * Messages have the form "property: message", like the ones built from ConstraintViolations.
+ * Instances are immutable and thread-safe.
+ */
+public final class PersonRecordValidator {
+
+    private final Check[] checks;
+
+    private PersonRecordValidator(Check[] checks) {
+        this.checks = checks;
+    }
+
+    /**
+     * Compiles PersonRecord's constraints.
+     * @param validator used for properties whose constraints can't be compiled
+     */
+    public static PersonRecordValidator compile(Validator validator) {
+        List<Check> checks = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        int textColumn = 0;
+        int decimalColumn = 0;
+
+        for (RecordComponent component : PersonRecord.class.getRecordComponents()) {
+            String name = component.getName();
+            boolean text = component.getType() == String.class;
+            int column = text ? textColumn++ : decimalColumn++;
+
+            MethodHandle accessor;
+            Annotation[] constraints;
+            try {
+                accessor = lookup.unreflect(component.getAccessor())
+                        .asType(MethodType.methodType(text ? String.class : double.class, PersonRecord.class));
+                constraints = constraintsOf(PersonRecord.class.getDeclaredField(name).getAnnotations());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot read constraints of PersonRecord." + name, e);
+            }
+
+            List<Check> compiled = new ArrayList<>();
+            for (Annotation constraint : constraints) {
+                Check check = text
+                        ? compileText(constraint, name, column, accessor)
+                        : compileDecimal(constraint, name, column, accessor);
+                if (check == null) {
+                    compiled = List.of(new BeanValidationCheck(validator, name, text, column, accessor));
+                    break;
+                }
+                compiled.add(check);
+            }
+            checks.addAll(compiled);
+        }
+
+        return new PersonRecordValidator(checks.toArray(new Check[0]));
+    }
+
+    /**
+     * @return the violation messages, empty if the record is valid
+     */
+    public List<String> validate(PersonRecord record) {
+        List<String> violations = null;
+        for (Check check : checks) {
+            violations = check.check(record, violations);
+        }
+        return violations == null ? List.of() : violations;
+    }
+
+    /**
+     * Validates a record row of a batch without materializing it.
+     * @return the violation messages, empty if the row is valid
+     */
+    public List<String> validate(PersonRecordBatch batch, int row) {
+        List<String> violations = null;
+        for (Check check : checks) {
+            violations = check.check(batch, row, violations);
+        }
+        return violations == null ? List.of() : violations;
+    }
+
+    private static Annotation[] constraintsOf(Annotation[] annotations) {
+        List<Annotation> constraints = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            //Containers of repeated constraints (e.g. @Pattern.List) aren't constraints themselves; they fall back
+            Class<? extends Annotation> type = annotation.annotationType();
+            if (type.isAnnotationPresent(Constraint.class) || type.getName().startsWith("jakarta.validation.constraints.")) {
+                constraints.add(annotation);
+            }
+        }
+        return constraints.toArray(new Annotation[0]);
+    }
+
+    /**
+     * @return the check, or null if the constraint has to go through Bean Validation
+     */
+    private static Check compileText(Annotation constraint, String name, int column, MethodHandle accessor) {
+        if (constraint instanceof NotBlank notBlank && isDefault(notBlank.groups(), notBlank.message())) {
+            return new NotBlankCheck(name + ": " + notBlank.message(), column, accessor);
+        }
+        if (constraint instanceof Pattern pattern && isDefault(pattern.groups(), pattern.message()) && pattern.flags().length == 0) {
+            String message = name + ": " + pattern.message();
+            AsciiShape shape = AsciiShape.parse(pattern.regexp());
+            return shape != null
+                    ? new ShapeCheck(message, column, accessor, shape)
+                    : new RegexCheck(message, column, accessor, java.util.regex.Pattern.compile(pattern.regexp()));
+        }
+        return null;
+    }
+
+    private static Check compileDecimal(Annotation constraint, String name, int column, MethodHandle accessor) {
+        if (constraint instanceof DecimalMin min && isDefault(min.groups(), min.message())) {
+            return new DecimalMinCheck(name + ": " + min.message(), column, accessor, new BigDecimal(min.value()), min.inclusive());
+        }
+        return null;
+    }
+
+    //Only messages without interpolation, in the default group, can be reproduced without Bean Validation
+    private static boolean isDefault(Class<?>[] groups, String message) {
+        return groups.length == 0 && message.indexOf('{') < 0 && message.indexOf('$') < 0;
+    }
+
+    private abstract static class Check {
+        final String message;
+
+        Check(String message) {
+            this.message = message;
+        }
+
+        abstract List<String> check(PersonRecord record, List<String> violations);
+
+        abstract List<String> check(PersonRecordBatch batch, int row, List<String> violations);
+
+        List<String> fail(List<String> violations) {
+            if (violations == null) violations = new ArrayList<>(2);
+            violations.add(message);
+            return violations;
+        }
+    }
+
+    private abstract static class TextCheck extends Check {
+        private final int column;
+        private final MethodHandle accessor;
+
+        TextCheck(String message, int column, MethodHandle accessor) {
+            super(message);
+            this.column = column;
+            this.accessor = accessor;
+        }
+
+        abstract boolean isValid(String value);
+
+        abstract boolean isValid(ByteBuffer buffer, int from, int to);
+
+        @Override
+        List<String> check(PersonRecord record, List<String> violations) {
+            return isValid(text(accessor, record)) ? violations : fail(violations);
+        }
+
+        @Override
+        List<String> check(PersonRecordBatch batch, int row, List<String> violations) {
+            boolean valid = isValid(batch.buffer(), batch.textStart(row, column), batch.textEnd(row, column));
+            return valid ? violations : fail(violations);
+        }
+    }
+
+    private static final class NotBlankCheck extends TextCheck {
+        NotBlankCheck(String message, int column, MethodHandle accessor) {
+            super(message, column, accessor);
+        }
+
+        //Same as Hibernate's NotBlankValidator: not null and not empty after String.trim()
+        @Override
+        boolean isValid(String value) {
+            return value != null && !value.trim().isEmpty();
+        }
+
+        @Override
+        boolean isValid(ByteBuffer buffer, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!Utf8.isTrimmable(buffer.get(i))) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class ShapeCheck extends TextCheck {
+        private final AsciiShape shape;
+
+        ShapeCheck(String message, int column, MethodHandle accessor, AsciiShape shape) {
+            super(message, column, accessor);
+            this.shape = shape;
+        }
+
+        //@Pattern accepts null
+        @Override
+        boolean isValid(String value) {
+            return value == null || shape.matches(value);
+        }
+
+        @Override
+        boolean isValid(ByteBuffer buffer, int from, int to) {
+            return shape.matches(buffer, from, to);
+        }
+    }
+
+    private static final class RegexCheck extends TextCheck {
+        private final java.util.regex.Pattern pattern;
+
+        RegexCheck(String message, int column, MethodHandle accessor, java.util.regex.Pattern pattern) {
+            super(message, column, accessor);
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return value == null || pattern.matcher(value).matches();
+        }
+
+        @Override
+        boolean isValid(ByteBuffer buffer, int from, int to) {
+            return isValid(Utf8.decode(buffer, from, to));
+        }
+    }
+
+    private static final class DecimalMinCheck extends Check {
+        private final int column;
+        private final MethodHandle accessor;
+        private final BigDecimal min;
+        private final double minValue;
+        private final boolean exact;
+        private final boolean inclusive;
+
+        DecimalMinCheck(String message, int column, MethodHandle accessor, BigDecimal min, boolean inclusive) {
+            super(message);
+            this.column = column;
+            this.accessor = accessor;
+            this.min = min;
+            this.minValue = min.doubleValue();
+            this.inclusive = inclusive;
+            //A primitive compare gives Bean Validation's answer whenever the bound is a double that
+            //BigDecimal.valueOf maps back onto itself, which holds for bounds like 0.0 or 10.5
+            this.exact = Double.isFinite(minValue)
+                    && new BigDecimal(minValue).compareTo(min) == 0
+                    && BigDecimal.valueOf(minValue).compareTo(min) == 0;
+        }
+
+        boolean isValid(double value) {
+            //NaN fails, like Bean Validation's DecimalMin for doubles
+            if (Double.isNaN(value)) return false;
+            if (Double.isInfinite(value)) return value > 0;
+
+            if (exact) return inclusive ? value >= minValue : value > minValue;
+            int comparison = BigDecimal.valueOf(value).compareTo(min);
+            return inclusive ? comparison >= 0 : comparison > 0;
+        }
+
+        @Override
+        List<String> check(PersonRecord record, List<String> violations) {
+            return isValid(decimal(accessor, record)) ? violations : fail(violations);
+        }
+
+        @Override
+        List<String> check(PersonRecordBatch batch, int row, List<String> violations) {
+            double value = column == 0 ? batch.avgSpeed(row) : batch.topSpeed(row);
+            return isValid(value) ? violations : fail(violations);
+        }
+    }
+
+    private static final class BeanValidationCheck extends Check {
+        private final Validator validator;
+        private final String property;
+        private final boolean text;
+        private final int column;
+        private final MethodHandle accessor;
+
+        BeanValidationCheck(Validator validator, String property, boolean text, int column, MethodHandle accessor) {
+            super(null);
+            this.validator = validator;
+            this.property = property;
+            this.text = text;
+            this.column = column;
+            this.accessor = accessor;
+        }
+
+        @Override
+        List<String> check(PersonRecord record, List<String> violations) {
+            Object value = text ? text(accessor, record) : (Object) decimal(accessor, record);
+            return check(value, violations);
+        }
+
+        @Override
+        List<String> check(PersonRecordBatch batch, int row, List<String> violations) {
+            Object value = text
+                    ? batch.text(row, column)
+                    : (Object) (column == 0 ? batch.avgSpeed(row) : batch.topSpeed(row));
+            return check(value, violations);
+        }
+
+        private List<String> check(Object value, List<String> violations) {
+            for (ConstraintViolation<PersonRecord> violation : validator.validateValue(PersonRecord.class, property, value)) {
+                if (violations == null) violations = new ArrayList<>(2);
+                violations.add(violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+            return violations;
+        }
+    }
+
+    private static String text(MethodHandle accessor, PersonRecord record) {
+        try {
+            return (String) accessor.invokeExact(record);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double decimal(MethodHandle accessor, PersonRecord record) {
+        try {
+            return (double) accessor.invokeExact(record);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.gng.test.validation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Set of the UUIDs seen in one file, remembering the line each was first seen on.
+ * <p>
+ * UUIDs are decoded straight from their bytes into two longs and kept in flat primitive arrays with
+ * open addressing and linear probing: 20 bytes per slot and at most 75% of the slots used, against
+ * well over 100 bytes per entry for a {@code HashSet<String>}. Hex digits are case-insensitive, so
+ * two spellings of the same UUID are the same entry.
+ * Not thread-safe; feed it from the thread that walks the file in line order.
+ */
+public final class UuidSet {
+
+    /**
+     * Returned by {@link #add} for a value that is not a UUID in its canonical 8-4-4-4-12 form.
+     */
+    public static final int NOT_A_UUID = -1;
+    /**
+     * Returned by {@link #add} for a UUID seen for the first time.
+     */
+    public static final int ADDED = 0;
+
+    private static final int UUID_LENGTH = 36;
+
+    //Each slot holds two longs (most and least significant halves); a line of 0 marks an empty slot
+    private long[] keys;
+    private int[] lines;
+    private int mask;
+    private int size;
+
+    public UuidSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 4 / 3 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Adds the UUID at [from, to) of the buffer, first seen on the given line unless already present.
+     * @param lineNumber the 1-based line the value is on
+     * @return {@link #ADDED}, {@link #NOT_A_UUID}, or the line the UUID was first seen on
+     */
+    public int add(ByteBuffer buffer, int from, int to, int lineNumber) {
+        if (to - from != UUID_LENGTH) return NOT_A_UUID;
+
+        long mostSig = 0;
+        long leastSig = 0;
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            byte b = buffer.get(from + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (b != '-') return NOT_A_UUID;
+                continue;
+            }
+
+            int digit = hexDigit(b);
+            if (digit < 0) return NOT_A_UUID;
+            if (i < 18) {
+                mostSig = mostSig << 4 | digit;
+            } else {
+                leastSig = leastSig << 4 | digit;
+            }
+        }
+
+        return add(mostSig, leastSig, lineNumber);
+    }
+
+    /**
+     * Adds the UUID with the given halves, first seen on the given line unless already present.
+     * @return {@link #ADDED} or the line the UUID was first seen on
+     */
+    public int add(long mostSig, long leastSig, int lineNumber) {
+        int slot = slotOf(mostSig, leastSig);
+        while (lines[slot] != 0) {
+            if (keys[slot * 2] == mostSig && keys[slot * 2 + 1] == leastSig) {
+                return lines[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot * 2] = mostSig;
+        keys[slot * 2 + 1] = leastSig;
+        lines[slot] = lineNumber;
+        if (++size > (mask + 1) / 4 * 3) {
+            grow();
+        }
+        return ADDED;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(long mostSig, long leastSig) {
+        //Version and variant bits are fixed, so mix both halves fully before masking
+        long h = mostSig * 0x9E3779B97F4A7C15L ^ leastSig;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldLines = lines;
+        allocate(oldLines.length * 2);
+
+        for (int slot = 0; slot < oldLines.length; slot++) {
+            if (oldLines[slot] == 0) continue;
+
+            int target = slotOf(oldKeys[slot * 2], oldKeys[slot * 2 + 1]);
+            while (lines[target] != 0) {
+                target = (target + 1) & mask;
+            }
+            keys[target * 2] = oldKeys[slot * 2];
+            keys[target * 2 + 1] = oldKeys[slot * 2 + 1];
+            lines[target] = oldLines[slot];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * 2];
+        lines = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hexDigit(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        if (b >= 'A' && b <= 'F') return b - 'A' + 10;
+        return -1;
+    }
+}
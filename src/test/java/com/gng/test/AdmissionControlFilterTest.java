@@ -0,0 +1,109 @@
+package com.gng.test;
+
+import com.gng.test.interceptor.AdmissionControlFilter;
+import com.gng.test.service.AdmissionControlService;
+import com.gng.test.service.AdmissionPermit;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlFilterTest {
+
+    private final AdmissionControlService admissionControlService = mock(AdmissionControlService.class);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(admissionControlService);
+
+    private static MockHttpServletRequest upload() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/process");
+        request.setContent(new byte[1024]);
+        return request;
+    }
+
+    @Test
+    void overBudget_isAnswered429WithRetryAfter() throws Exception {
+        // given
+        when(admissionControlService.admit(anyLong())).thenReturn(null);
+        when(admissionControlService.getRetryAfterSeconds()).thenReturn(5L);
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(upload(), response, chain);
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("5");
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void admitted_releasesPermitOnceRequestIsDone() throws Exception {
+        // given
+        AdmissionPermit permit = mock(AdmissionPermit.class);
+        when(admissionControlService.admit(1024)).thenReturn(permit);
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(upload(), response, chain);
+
+        // then
+        verify(chain).doFilter(any(), any());
+        verify(permit).close();
+    }
+
+    @Test
+    void getRequests_areNotHeldBack() throws Exception {
+        // given
+        FilterChain chain = mock(FilterChain.class);
+
+        // when
+        filter.doFilter(new MockHttpServletRequest("GET", "/process"), new MockHttpServletResponse(), chain);
+
+        // then
+        verify(chain).doFilter(any(), any());
+        verify(admissionControlService, never()).admit(anyLong());
+    }
+
+    @Test
+    void permitTakenByHandler_isLeftForItsJobToRelease() throws Exception {
+        // given
+        AdmissionPermit permit = mock(AdmissionPermit.class);
+        when(admissionControlService.admit(1024)).thenReturn(permit);
+        AtomicReference<AdmissionPermit> taken = new AtomicReference<>();
+        FilterChain chain = (request, response) -> taken.set(AdmissionControlFilter.takePermit((HttpServletRequest) request));
+
+        // when
+        filter.doFilter(upload(), new MockHttpServletResponse(), chain);
+
+        // then
+        assertThat(taken.get()).isSameAs(permit);
+        verify(permit, never()).close();
+    }
+
+    @Test
+    void sessionStartWithoutBody_isChargedAsUnknownLength() throws Exception {
+        // given
+        AdmissionPermit permit = mock(AdmissionPermit.class);
+        when(admissionControlService.admit(-1)).thenReturn(permit);
+        FilterChain chain = mock(FilterChain.class);
+
+        // when
+        filter.doFilter(new MockHttpServletRequest("POST", "/process/uploads"), new MockHttpServletResponse(), chain);
+
+        // then
+        verify(chain).doFilter(any(), any());
+        verify(admissionControlService).admit(-1);
+    }
+}
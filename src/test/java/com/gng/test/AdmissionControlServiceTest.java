@@ -0,0 +1,106 @@
+package com.gng.test;
+
+import com.gng.test.service.AdmissionPermit;
+import com.gng.test.service.impl.AdmissionControlServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlServiceTest {
+
+    //One byte of memory per upload byte, a 1000 byte budget, a 200 ms wait and a line of one
+    private static AdmissionControlServiceImpl service() {
+        return new AdmissionControlServiceImpl(true, 1, 100, 1000, 1.0, 200, 1, 5, new SimpleMeterRegistry());
+    }
+
+    private static CompletableFuture<AdmissionPermit> admitLater(AdmissionControlServiceImpl service, long contentLength) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.admit(contentLength);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void awaitQueued(AdmissionControlServiceImpl service, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getStatus().getQueuedRequests() < queued && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void admit_overBudget_waitsUntilMemoryIsReleased() throws Exception {
+        // given
+        AdmissionControlServiceImpl service = service();
+        AdmissionPermit first = service.admit(600);
+
+        // when
+        CompletableFuture<AdmissionPermit> second = admitLater(service, 600);
+        awaitQueued(service, 1);
+        first.close();
+
+        // then
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(service.getStatus().getInFlightBytes()).isEqualTo(600);
+        assertThat(service.getStatus().getDelayed()).isEqualTo(1);
+    }
+
+    @Test
+    void admit_overBudget_isRejectedAfterQueueTimeout() throws Exception {
+        // given
+        AdmissionControlServiceImpl service = service();
+        service.admit(600);
+
+        // when
+        long start = System.nanoTime();
+        AdmissionPermit permit = service.admit(600);
+
+        // then
+        assertThat(permit).isNull();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(service.getStatus().getRejected()).isEqualTo(1);
+        assertThat(service.getStatus().getQueuedRequests()).isZero();
+    }
+
+    @Test
+    void admit_withLineFull_isRejectedRightAway() throws Exception {
+        // given
+        AdmissionControlServiceImpl service = service();
+        AdmissionPermit first = service.admit(600);
+        CompletableFuture<AdmissionPermit> waiting = admitLater(service, 600);
+        awaitQueued(service, 1);
+
+        // when
+        //Small enough to fit, but it doesn't get ahead of the request already waiting
+        AdmissionPermit permit = service.admit(10);
+
+        // then
+        assertThat(permit).isNull();
+        first.close();
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void admit_uploadLargerThanBudget_isAdmittedWhenAlone() throws Exception {
+        // given
+        AdmissionControlServiceImpl service = service();
+
+        // when
+        AdmissionPermit permit = service.admit(5000);
+
+        // then
+        assertThat(permit).isNotNull();
+        //Without a Content-Length the upload is charged unknown-length-bytes, which doesn't fit next to it
+        assertThat(service.admit(-1)).isNull();
+        permit.close();
+        permit.close();
+        assertThat(service.getStatus().getInFlightRequests()).isZero();
+        assertThat(service.getStatus().getInFlightBytes()).isZero();
+    }
+}
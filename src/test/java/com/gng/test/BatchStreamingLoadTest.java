@@ -0,0 +1,115 @@
+package com.gng.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.gng.test.service.BatchProcessingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Streams a batch ZIP from a real server that takes longer than the container's default 30 second async timeout,
+ * which would otherwise cut the response off after its 200 and first entries were sent.
+ * Run with ./gradlew loadTest.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class BatchStreamingLoadTest {
+
+	private static final Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(30);
+
+	private static final WireMockServer geoApi = new WireMockServer(options().dynamicPort());
+
+	@LocalServerPort
+	private int port;
+
+	@MockitoBean
+	private BatchProcessingService batchProcessingService;
+
+	@DynamicPropertySource
+	static void geoApiUrl(DynamicPropertyRegistry registry) {
+		geoApi.start();
+		registry.add("ip-api.base.url", () -> geoApi.baseUrl() + "/json/");
+	}
+
+	@AfterAll
+	static void stopGeoApi() {
+		geoApi.stop();
+	}
+
+	@Test
+	void batchOutlastingDefaultAsyncTimeout_isStreamedToTheEnd() throws Exception {
+		geoApi.stubFor(get(urlPathMatching("/json/.*"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+		//The first file is done right away, the second only once the default timeout has long passed
+		doAnswer(invocation -> {
+			ZipOutputStream zip = new ZipOutputStream(invocation.getArgument(2, OutputStream.class));
+			zip.putNextEntry(new ZipEntry("1-data.txt/OutcomeFile.json"));
+			zip.write("[]".getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+			zip.flush();
+			Thread.sleep(DEFAULT_ASYNC_TIMEOUT.plusSeconds(5).toMillis());
+			zip.putNextEntry(new ZipEntry("summary.json"));
+			zip.write("[]".getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+			zip.finish();
+			return null;
+		}).when(batchProcessingService).process(any(), any(), any());
+
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		String boundary = "load-test-boundary";
+		byte[] body = ("--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"files\"; filename=\"data.txt\"\r\n"
+				+ "Content-Type: text/plain\r\n\r\n"
+				+ "18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1\r\n"
+				+ "--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/process/batch"))
+				.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+				.header("X-Real-IP", "10.0.0.1")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+				.build();
+
+		HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(response.statusCode()).isEqualTo(200);
+		List<String> entries = new ArrayList<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.body()))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				entries.add(entry.getName());
+			}
+		}
+		assertThat(entries).containsExactly("1-data.txt/OutcomeFile.json", "summary.json");
+	}
+}
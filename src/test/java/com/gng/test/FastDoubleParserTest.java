@@ -0,0 +1,60 @@
+package com.gng.test;
+
+import com.gng.test.parser.FastDoubleParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastDoubleParserTest {
+
+    private final FastDoubleParser parser = new FastDoubleParser();
+
+    private boolean parse(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    @Test
+    void parse_acceptsEverythingDoubleParseDoubleAccepts() {
+        List<String> inputs = List.of("45.5", "-0", "+.5", "7.", "1e3", "1E-3", "12.5d", "3f", "NaN", "-Infinity",
+                "0x1p3", "0.1", "123456789012345678901234567890", "4.9e-324", "1.7976931348623157e308", " 6.2 ");
+
+        for (String input : inputs) {
+            assertThat(parse(input)).as(input).isTrue();
+            assertThat(Double.doubleToRawLongBits(parser.value()))
+                    .as(input)
+                    .isEqualTo(Double.doubleToRawLongBits(Double.parseDouble(input)));
+        }
+    }
+
+    @Test
+    void parse_rejectsMalformedInputWithoutThrowing() {
+        List<String> inputs = List.of("", " ", "abc", ".", "-", "1e", "1e+", "1.2.3", "1,5", "nan", "0x", "12a", "1fd");
+
+        for (String input : inputs) {
+            assertThat(parse(input)).as(input).isFalse();
+        }
+    }
+
+    @Test
+    void parse_roundTripsRandomDoubles() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            double expected = i % 2 == 0
+                    ? Double.longBitsToDouble(random.nextLong())
+                    : random.nextInt(1_000_000) / 100.0;
+            String text = Double.toString(expected);
+
+            assertThat(parse(text)).as(text).isTrue();
+            assertThat(Double.doubleToRawLongBits(parser.value()))
+                    .as(text)
+                    .isEqualTo(Double.doubleToRawLongBits(Double.parseDouble(text)));
+        }
+    }
+}
@@ -1,14 +1,33 @@
 package com.gng.test;
 
+import com.gng.test.model.ContentEncodedMultipartFile;
 import com.gng.test.model.ParsedLineResult;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.model.PathMultipartFile;
+import com.gng.test.parser.Compression;
+import com.gng.test.parser.PersonSchema;
 import com.gng.test.service.FileParsingService;
+import com.gng.test.service.PersonRecordBatchSink;
+import com.gng.test.service.impl.FileParsingServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -36,5 +55,245 @@ class FileParsingServiceTest {
         assertThat(result.getParseError()).isNull();
         assertThat(result.getRecord()).isNotNull();
         assertThat(result.getRecord().name()).isEqualTo("Alice");
+        assertThat(result.getRawLine()).isEqualTo(line);
     }
-}
\ No newline at end of file
+
+    @Test
+    void parseFile_parallelChunks_keepsLineNumbersAndOrder() throws Exception {
+        // given
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 500; i++) {
+            content.append(i % 7 == 0
+                    ? "broken line " + i
+                    : "550e8400-e29b-41d4-a716-446655440000|" + i + "|Name" + i + "|Coffee|Car|45.5|120.0");
+            content.append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "data.txt", "text/plain",
+                content.toString().getBytes(StandardCharsets.UTF_8)
+        );
+        FileParsingServiceImpl parallelParser = new FileParsingServiceImpl(true, 4, 1.0, 256, Long.MAX_VALUE, 256, 65536, 262144, 1 << 28, PersonSchema.DEFAULT, new SimpleMeterRegistry());
+
+        // when
+        List<ParsedLineResult> results = parallelParser.parseFile(file);
+
+        // then
+        assertThat(results).hasSize(500);
+        assertThat(results).extracting(ParsedLineResult::getLineNumber)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, 500).boxed().toList());
+        assertThat(results.get(6).getParseError()).isNotNull();
+        assertThat(results.get(6).getRawLine()).isEqualTo("broken line 7");
+        assertThat(results.get(499).getRecord().name()).isEqualTo("Name500");
+    }
+
+    @Test
+    void parseFile_spooledFile_isParsedFromMemoryMap(@TempDir Path dir) throws Exception {
+        // given
+        Path data = Files.writeString(dir.resolve("data.txt"),
+                "550e8400-e29b-41d4-a716-446655440000|1|Alice|Coffee|Car|45.5|120.0\r\n"
+                        + "\n"
+                        + "bad|line\n"
+                        + "550e8400-e29b-41d4-a716-446655440001|2|Bob|Tea|Bike|10|20");
+        PathMultipartFile file = new PathMultipartFile(data, "file", "data.txt", "text/plain");
+        FileParsingServiceImpl mappingParser = new FileParsingServiceImpl(false, 1, 1.0, 16, 0, 256, 65536, 262144, 1 << 28, PersonSchema.DEFAULT, new SimpleMeterRegistry());
+
+        // when
+        List<ParsedLineResult> results = mappingParser.parseFile(file);
+
+        // then
+        assertThat(results).extracting(ParsedLineResult::getLineNumber).containsExactly(1, 3, 4);
+        assertThat(results.get(0).getRecord().name()).isEqualTo("Alice");
+        assertThat(results.get(1).getParseError()).isEqualTo("Incorrect number of fields, expected 7");
+        assertThat(results.get(2).getRecord().top_speed()).isEqualTo(20.0);
+    }
+
+    @Test
+    void parseFile_gzipUpload_isDecompressedWhileParsing() throws Exception {
+        // given
+        String content = "550e8400-e29b-41d4-a716-446655440000|1|Alice|Coffee|Car|45.5|120.0\n"
+                + "bad|line\n";
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "data.txt.gz", "application/octet-stream", gzipped.toByteArray()
+        );
+
+        // when
+        List<ParsedLineResult> results = fileParsingService.parseFile(file);
+
+        // then
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getRecord().name()).isEqualTo("Alice");
+        assertThat(results.get(1).getRawLine()).isEqualTo("bad|line");
+    }
+
+    @Test
+    void parseFile_declaredRawDeflate_isDecompressedWhileParsing() throws Exception {
+        // given
+        String content = "550e8400-e29b-41d4-a716-446655440000|1|Alice|Coffee|Car|45.5|120.0";
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        MockMultipartFile part = new MockMultipartFile(
+                "file", "data.txt", "text/plain", deflated.toByteArray()
+        );
+
+        // when
+        List<ParsedLineResult> results = fileParsingService.parseFile(
+                new ContentEncodedMultipartFile(part, Compression.DEFLATE));
+
+        // then
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getRecord().top_speed()).isEqualTo(120.0);
+    }
+
+    @Test
+    void parseBatches_reportsEveryRawByteToTheSink(@TempDir Path dir) throws Exception {
+        // given
+        String content = "550e8400-e29b-41d4-a716-446655440000|1|Alice|Coffee|Car|45.5|120.0\n".repeat(50);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        Path data = Files.writeString(dir.resolve("data.txt"), content);
+        FileParsingServiceImpl mappingParser = new FileParsingServiceImpl(false, 1, 1.0, 16, 0, 256, 65536, 262144, 1 << 28, PersonSchema.DEFAULT, new SimpleMeterRegistry());
+        ByteArrayOutputStream mapped = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        // when
+        mappingParser.parseBatches(new PathMultipartFile(data, "file", "data.txt", "text/plain"), rawBytesTo(mapped));
+        fileParsingService.parseBatches(new MockMultipartFile(
+                "file", "data.txt.gz", "application/octet-stream", gzipped.toByteArray()), rawBytesTo(compressed));
+
+        // then
+        assertThat(mapped.toString(StandardCharsets.UTF_8)).isEqualTo(content);
+        assertThat(compressed.toByteArray()).isEqualTo(gzipped.toByteArray());
+    }
+
+    @Test
+    void parseBatches_sinkDone_stopsReadingFurtherChunks() throws Exception {
+        // given
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 500; i++) {
+            content.append("broken line ").append(i).append('\n');
+        }
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "data.txt", "text/plain",
+                content.toString().getBytes(StandardCharsets.UTF_8)
+        );
+        FileParsingServiceImpl parallelParser = new FileParsingServiceImpl(true, 4, 1.0, 256, Long.MAX_VALUE, 256, 65536, 262144, 1 << 28, PersonSchema.DEFAULT, new SimpleMeterRegistry());
+        List<PersonRecordBatch> batches = new ArrayList<>();
+
+        // when
+        parallelParser.parseBatches(file, new PersonRecordBatchSink() {
+            @Override
+            public void accept(PersonRecordBatch batch) {
+                batches.add(batch);
+            }
+
+            @Override
+            public boolean isDone() {
+                return !batches.isEmpty();
+            }
+        });
+
+        // then
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0).lineNumber(0)).isEqualTo(1);
+    }
+
+    @Test
+    void parseBatches_parallel_keepsToItsShareOfThePool() throws Exception {
+        // given
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 500; i++) {
+            content.append("550e8400-e29b-41d4-a716-446655440000|").append(i).append("|Name|Coffee|Car|45.5|120.0\n");
+        }
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "data.txt", "text/plain",
+                content.toString().getBytes(StandardCharsets.UTF_8)
+        );
+        //Half of a pool of 4
+        FileParsingServiceImpl sharedParser = new FileParsingServiceImpl(true, 4, 0.5, 256, Long.MAX_VALUE, 256, 65536, 262144, 1 << 28, PersonSchema.DEFAULT, new SimpleMeterRegistry());
+        AtomicInteger busy = new AtomicInteger();
+        AtomicInteger maxBusy = new AtomicInteger();
+        List<PersonRecordBatch> batches = new ArrayList<>();
+
+        // when
+        sharedParser.parseBatches(file, (batch, row) -> {
+            maxBusy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                busy.decrementAndGet();
+            }
+        }, batches::add);
+
+        // then
+        assertThat(maxBusy.get()).isLessThanOrEqualTo(2);
+        assertThat(batches.stream().mapToInt(PersonRecordBatch::size).sum()).isEqualTo(500);
+    }
+
+    @Test
+    void parseBatchesIncremental_editedFile_reparsesOnlyChangedChunksWithRebasedLines() throws Exception {
+        // given
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            lines.add("550e8400-e29b-41d4-a716-446655440000|" + i + "|Name" + i + "|Coffee|Car|45.5|" + i + ".0");
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileParsingServiceImpl incrementalParser = new FileParsingServiceImpl(false, 1, 1.0, 16, Long.MAX_VALUE, 256, 256, 1024, 1 << 24, PersonSchema.DEFAULT, registry);
+        incrementalParser.parseBatchesIncremental(upload(lines), null, batch -> { });
+        double firstMisses = registry.counter("parser.incremental.chunks", "result", "miss").count();
+
+        //Two lines inserted halfway, so every line after them moves down by two
+        List<String> edited = new ArrayList<>(lines);
+        edited.add(1000, "broken line");
+        edited.add(1000, "550e8400-e29b-41d4-a716-446655440000|new|New Name|Tea|Bike|10.0|20.0");
+        List<ParsedLineResult> results = new ArrayList<>();
+
+        // when
+        incrementalParser.parseBatchesIncremental(upload(edited), null, batch -> {
+            for (int row = 0; row < batch.size(); row++) {
+                results.add(batch.toParsedLine(row));
+            }
+        });
+
+        // then
+        assertThat(results).extracting(ParsedLineResult::getLineNumber)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, 2002).boxed().toList());
+        assertThat(results.get(1000).getParseError()).isNotNull();
+        assertThat(results.get(2001).getRecord().name()).isEqualTo("Name2000");
+        assertThat(results.get(2001).getRecord().top_speed()).isEqualTo(2000.0);
+
+        double hits = registry.counter("parser.incremental.chunks", "result", "hit").count();
+        double editMisses = registry.counter("parser.incremental.chunks", "result", "miss").count() - firstMisses;
+        assertThat(hits).isGreaterThan(firstMisses / 2);
+        assertThat(editMisses).isLessThanOrEqualTo(3);
+    }
+
+    private static PersonRecordBatchSink rawBytesTo(ByteArrayOutputStream out) {
+        return new PersonRecordBatchSink() {
+            @Override
+            public void accept(PersonRecordBatch batch) {
+            }
+
+            @Override
+            public void onContent(ByteBuffer content) {
+                while (content.hasRemaining()) {
+                    out.write(content.get());
+                }
+            }
+        };
+    }
+
+    private static MockMultipartFile upload(List<String> lines) {
+        return new MockMultipartFile("file", "data.txt", "text/plain",
+                (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
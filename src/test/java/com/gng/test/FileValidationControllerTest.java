@@ -1,6 +1,7 @@
 package com.gng.test;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,10 +10,25 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
@@ -110,4 +126,261 @@ class FileValidationControllerTest {
 						.header("X-Real-IP", "127.0.0.1"))
 				.andExpect(status().isForbidden());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testIngestFile_StreamsOutcomeFile_WhenAllLinesValid() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				("18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1\n"
+						+ "3ce2d17b-e66a-4c1e-bca3-40eb1c9222c7|2X2D24|Mike Smith|Likes Grape|Drives an SUV|35.0|95.5").getBytes()
+		);
+
+		MvcResult result = mockMvc.perform(multipart("/process")
+						.file(file)
+						.param("flag", "true")
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Disposition", "attachment; filename=OutcomeFile.json"))
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].name").value("John Smith"))
+				.andExpect(jsonPath("$[1].transport").value("Drives an SUV"))
+				.andExpect(jsonPath("$[1].top_speed").value(95.5));
+	}
+
+	@Test
+	void testIngestFile_ParsesNamedSchema_WhenSchemaGiven() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		// The "partner" layout of the test profile: comma-delimited, name first, and a column we don't use
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				"John Smith,18148426-89e1-11ee-b9d1-0242ac120002,1X1D14,ignored,Likes Apricots,Rides A Bike,6.2,12.1".getBytes()
+		);
+
+		MvcResult result = mockMvc.perform(multipart("/process")
+						.file(file)
+						.param("flag", "true")
+						.param("schema", "partner")
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].name").value("John Smith"))
+				.andExpect(jsonPath("$[0].transport").value("Rides A Bike"))
+				.andExpect(jsonPath("$[0].top_speed").value(12.1));
+	}
+
+	@Test
+	void testIngestFile_ReturnsBadRequest_WhenSchemaUnknown() throws Exception {
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				"18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1".getBytes()
+		);
+
+		mockMvc.perform(multipart("/process")
+						.file(file)
+						.param("schema", "nope")
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Unknown schema: nope"));
+	}
+
+	@Test
+	void testIngestFile_StreamsOutcomeFileWithoutAsyncTimeout() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				"18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1".getBytes()
+		);
+
+		MvcResult result = mockMvc.perform(multipart("/process")
+						.file(file)
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		// A large outcome can take longer to send than any fixed bound; a timeout would cut it off after the 200
+		assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(-1);
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("Content-Length"));
+	}
+
+	@Test
+	void testIngestFile_ReplaysCachedResult_WhenSameFileUploadedAgain() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				"5b0c1a3e-2f4d-4c6b-9a8e-7d1f0e2c3b4a|3X3D34|Anna Smith|Likes Pears|Rides A Scooter|12.5|25.0".getBytes()
+		);
+
+		for (int upload = 0; upload < 2; upload++) {
+			MvcResult result = mockMvc.perform(multipart("/process")
+							.file(file)
+							.param("flag", "true")
+							.param("format", "csv")
+							.header("X-Real-IP", "127.0.0.1"))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+
+			mockMvc.perform(asyncDispatch(result))
+					.andExpect(status().isOk())
+					.andExpect(header().string("Content-Disposition", "attachment; filename=OutcomeFile.csv"))
+					.andExpect(content().string("name,transport,top_speed\r\nAnna Smith,Rides A Scooter,25.0\r\n"));
+		}
+	}
+
+	@Test
+	void testIngestFile_TruncatesErrors_WhenMaxErrorsReached() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				"not|a|record\nnot|a|record\nnot|a|record".getBytes()
+		);
+
+		mockMvc.perform(multipart("/process")
+						.file(file)
+						.param("maxErrors", "2")
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(header().string("X-Errors-Truncated", "true"))
+				.andExpect(jsonPath("$.length()").value(2));
+	}
+
+	@Test
+	void testIngestFile_ReturnsJobLocation_WhenAsync() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		MockMultipartFile file = new MockMultipartFile(
+				"file",
+				"data.txt",
+				"text/plain",
+				"18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1".getBytes()
+		);
+
+		mockMvc.perform(multipart("/process")
+						.file(file)
+						.param("async", "true")
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string("Location", Matchers.startsWith("/process/jobs/")))
+				.andExpect(jsonPath("$.id").isNotEmpty());
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/process/jobs/does-not-exist"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void testIngestBatch_StreamsZipOfPerFileResults() throws Exception {
+		wireMockServer.stubFor(get(urlPathEqualTo("/json/127.0.0.1"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """)));
+
+		MockMultipartFile valid = new MockMultipartFile(
+				"files",
+				"valid.txt",
+				"text/plain",
+				"18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1".getBytes()
+		);
+		MockMultipartFile invalid = new MockMultipartFile(
+				"files",
+				"invalid.txt",
+				"text/plain",
+				"not|a|record".getBytes()
+		);
+
+		MvcResult result = mockMvc.perform(multipart("/process/batch")
+						.file(valid)
+						.file(invalid)
+						.param("format", "csv")
+						.header("X-Real-IP", "127.0.0.1"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		byte[] zip = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Disposition", "attachment; filename=OutcomeFiles.zip"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		// Entries come in the order the files finish, so collect them by name
+		Map<String, String> entries = new HashMap<>();
+		try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+
+		assertThat(entries).containsOnlyKeys("1-valid.txt/OutcomeFile.csv", "2-invalid.txt/errors.json", "summary.json");
+		assertThat(entries.get("1-valid.txt/OutcomeFile.csv")).isEqualTo("name,transport,top_speed\r\nJohn Smith,Rides A Bike,12.1\r\n");
+		assertThat(entries.get("2-invalid.txt/errors.json")).contains("\"lineNumber\":1");
+		assertThat(entries.get("summary.json"))
+				.contains("\"name\":\"valid.txt\",\"status\":\"SUCCEEDED\"")
+				.contains("\"name\":\"invalid.txt\",\"status\":\"INVALID\"");
+	}
+}
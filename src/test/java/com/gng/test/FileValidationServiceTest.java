@@ -4,14 +4,18 @@ import com.gng.test.dto.FileParseErrorDTO;
 import com.gng.test.model.ParsedLineResult;
 import com.gng.test.model.ParseResult;
 import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
 import com.gng.test.service.FileParsingService;
 import com.gng.test.service.FileValidationService;
+import com.gng.test.service.ParseResultSink;
+import com.gng.test.service.PersonRecordBatchSink;
 import com.gng.test.service.RecordValidationService;
 import com.gng.test.service.impl.FileValidationServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -31,6 +35,11 @@ class FileValidationServiceTest {
         fileValidationService = new FileValidationServiceImpl(parsingService, validationService);
     }
 
+    //Runs the row validator over the record rows like the real parser does, then hands the batch over
+    private void stubParsedLines(MockMultipartFile file, ParsedLineResult... lines) throws Exception {
+        doAnswer(ParsedLines.parsedAs(lines)).when(parsingService).parseBatches(eq(file), any(), any(), any(PersonRecordBatchSink.class));
+    }
+
     private PersonRecord createValidPerson() {
         return new PersonRecord(
                 UUID.randomUUID().toString(),
@@ -50,11 +59,11 @@ class FileValidationServiceTest {
         PersonRecord record = createValidPerson();
         ParsedLineResult parsed = new ParsedLineResult(1, "Alice,123", record, null);
 
-        when(parsingService.parseFile(file)).thenReturn(List.of(parsed));
+        stubParsedLines(file, parsed);
 
         ParseResult result = fileValidationService.parseAndValidate(file, false);
 
-        verify(parsingService).parseFile(file);
+        verify(parsingService).parseBatches(eq(file), isNull(), isNull(), any(PersonRecordBatchSink.class));
         verifyNoInteractions(validationService);
 
         assertThat(result.getValidRecords()).containsExactly(record);
@@ -70,20 +79,25 @@ class FileValidationServiceTest {
         ParsedLineResult parsed1 = new ParsedLineResult(1, "Line1", validPerson, null);
         ParsedLineResult parsed2 = new ParsedLineResult(2, "Line2", null, "Parse error at line 2");
 
-        when(parsingService.parseFile(file)).thenReturn(List.of(parsed1, parsed2));
+        stubParsedLines(file, parsed1, parsed2);
 
-        FileParseErrorDTO validationError = new FileParseErrorDTO(1, "Line1", "Name too short");
-        when(validationService.validateRecords(anyList())).thenReturn(List.of(validationError));
+        doAnswer(invocation -> {
+            PersonRecordBatch batch = invocation.getArgument(0);
+            batch.addViolation(invocation.getArgument(1), "Name too short");
+            return null;
+        }).when(validationService).validateRow(any(), anyInt());
 
         ParseResult result = fileValidationService.parseAndValidate(file, true);
 
-        verify(parsingService).parseFile(file);
-        verify(validationService).validateRecords(anyList());
+        verify(parsingService).parseBatches(eq(file), isNull(), notNull(), any(PersonRecordBatchSink.class));
+        verify(validationService).validateRow(any(), eq(0));
 
         assertThat(result.getErrors()).hasSize(2);
         assertThat(result.getErrors())
                 .extracting(FileParseErrorDTO::getLineNumber)
                 .containsExactlyInAnyOrder(1, 2);
+        assertThat(result.getErrors().get(0))
+                .isEqualTo(new FileParseErrorDTO(1, "Line1", "Name too short"));
 
         // Both lines have errors
         assertThat(result.getValidRecords()).isEmpty();
@@ -96,8 +110,7 @@ class FileValidationServiceTest {
         PersonRecord person = createValidPerson();
         ParsedLineResult parsed = new ParsedLineResult(1, "GoodData", person, null);
 
-        when(parsingService.parseFile(file)).thenReturn(List.of(parsed));
-        when(validationService.validateRecords(anyList())).thenReturn(List.of());
+        stubParsedLines(file, parsed);
 
         ParseResult result = fileValidationService.parseAndValidate(file, true);
 
@@ -109,10 +122,105 @@ class FileValidationServiceTest {
     void parseAndValidate_parsingThrowsException_propagatesIt() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "bad.csv", "text/plain", "bad".getBytes());
 
-        when(parsingService.parseFile(file)).thenThrow(new RuntimeException("Parse failure"));
+        doThrow(new RuntimeException("Parse failure"))
+                .when(parsingService).parseBatches(eq(file), any(), any(), any(PersonRecordBatchSink.class));
 
         assertThatThrownBy(() -> fileValidationService.parseAndValidate(file, false))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Parse failure");
     }
-}
\ No newline at end of file
+
+    @Test
+    void parseAndValidate_streaming_emitsOutcomeInLineOrder() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv", "text/plain", "L1\nL2\nL3".getBytes());
+
+        PersonRecord first = createValidPerson();
+        PersonRecord third = createValidPerson();
+        ParsedLineResult parsed1 = new ParsedLineResult(1, "L1", first, null);
+        ParsedLineResult parsed2 = new ParsedLineResult(2, "L2", null, "Parse error at line 2");
+        ParsedLineResult parsed3 = new ParsedLineResult(3, "L3", third, null);
+
+        stubParsedLines(file, parsed1, parsed2, parsed3);
+
+        List<Object> emitted = new ArrayList<>();
+        fileValidationService.parseAndValidate(file, true, new ParseResultSink() {
+            @Override
+            public void onRecord(PersonRecord record) {
+                emitted.add(record);
+            }
+
+            @Override
+            public void onError(FileParseErrorDTO error) {
+                emitted.add(error.getLineNumber());
+            }
+        });
+
+        assertThat(emitted).containsExactly(first, 2, third);
+    }
+
+    @Test
+    void parseAndValidate_checkDuplicates_reportsRepeatedUuidWithFirstLine() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv", "text/plain", "L1\nL2\nL3".getBytes());
+
+        PersonRecord first = createValidPerson();
+        PersonRecord other = createValidPerson();
+        PersonRecord repeated = new PersonRecord(first.uuid(), "456", "Bob Jones", "Tea", "Bike", 10.0, 20.0);
+        stubParsedLines(file,
+                new ParsedLineResult(1, "L1", first, null),
+                new ParsedLineResult(2, "L2", other, null),
+                new ParsedLineResult(3, "L3", repeated, null));
+
+        List<Object> emitted = new ArrayList<>();
+        fileValidationService.parseAndValidate(file, false, true, new ParseResultSink() {
+            @Override
+            public void onRecord(PersonRecord record) {
+                emitted.add(record);
+            }
+
+            @Override
+            public void onError(FileParseErrorDTO error) {
+                emitted.add(error);
+            }
+        });
+
+        assertThat(emitted).containsExactly(first, other, new FileParseErrorDTO(3, "L3", "uuid: Duplicate of line 1"));
+    }
+
+    @Test
+    void parseAndValidate_sinkDone_stopsEmittingAndReportsDoneToParser() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv", "text/plain", "L1\nL2\nL3".getBytes());
+
+        ParsedLineResult parsed1 = new ParsedLineResult(1, "L1", null, "Parse error at line 1");
+        ParsedLineResult parsed2 = new ParsedLineResult(2, "L2", null, "Parse error at line 2");
+        ParsedLineResult parsed3 = new ParsedLineResult(3, "L3", createValidPerson(), null);
+
+        List<Boolean> parserSawDone = new ArrayList<>();
+        doAnswer(invocation -> {
+            PersonRecordBatchSink sink = invocation.getArgument(3);
+            sink.accept(ParsedLines.batchOf(parsed1, parsed2, parsed3));
+            parserSawDone.add(sink.isDone());
+            return null;
+        }).when(parsingService).parseBatches(eq(file), any(), any(), any(PersonRecordBatchSink.class));
+
+        List<Object> emitted = new ArrayList<>();
+        fileValidationService.parseAndValidate(file, false, new ParseResultSink() {
+            @Override
+            public void onRecord(PersonRecord record) {
+                emitted.add(record);
+            }
+
+            @Override
+            public void onError(FileParseErrorDTO error) {
+                emitted.add(error.getLineNumber());
+            }
+
+            @Override
+            public boolean isDone() {
+                return !emitted.isEmpty();
+            }
+        });
+
+        assertThat(emitted).containsExactly(1);
+        assertThat(parserSawDone).containsExactly(true);
+    }
+}
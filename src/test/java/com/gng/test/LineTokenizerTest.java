@@ -0,0 +1,57 @@
+package com.gng.test;
+
+import com.gng.test.parser.LineTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineTokenizerTest {
+
+    private final LineTokenizer tokenizer = new LineTokenizer('|', 7);
+
+    private static ByteBuffer bytes(String line) {
+        return ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void tokenize_trimsFieldsWithoutTouchingInnerSpaces() {
+        ByteBuffer line = bytes(" a |  John Smith\t| é ");
+
+        int fields = tokenizer.tokenize(line, 0, line.limit());
+
+        assertThat(fields).isEqualTo(3);
+        assertThat(tokenizer.decode(line, 0)).isEqualTo("a");
+        assertThat(tokenizer.decode(line, 1)).isEqualTo("John Smith");
+        assertThat(tokenizer.decode(line, 2)).isEqualTo("é");
+    }
+
+    @Test
+    void tokenize_dropsTrailingEmptyFieldsLikeStringSplit() {
+        String raw = "a|b||c|||";
+        ByteBuffer line = bytes(raw);
+
+        assertThat(tokenizer.tokenize(line, 0, line.limit())).isEqualTo(raw.split("\\|").length);
+    }
+
+    @Test
+    void tokenize_countsFieldsBeyondCapacity() {
+        ByteBuffer line = bytes("1|2|3|4|5|6|7|8|9");
+
+        assertThat(tokenizer.tokenize(line, 0, line.limit())).isEqualTo(9);
+        assertThat(tokenizer.decode(line, 6)).isEqualTo("7");
+    }
+
+    @Test
+    void tokenize_respectsRangeWithinBuffer() {
+        ByteBuffer buffer = bytes("xx|a|b\nnext");
+
+        int fields = tokenizer.tokenize(buffer, 3, 6);
+
+        assertThat(fields).isEqualTo(2);
+        assertThat(tokenizer.decode(buffer, 0)).isEqualTo("a");
+        assertThat(tokenizer.decode(buffer, 1)).isEqualTo("b");
+    }
+}
@@ -0,0 +1,82 @@
+package com.gng.test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.gng.test.output.OutcomeFormat;
+import com.gng.test.output.OutcomeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutcomeFormatTest {
+
+    private static byte[] write(OutcomeFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutcomeWriter writer = format.open(out, new JsonFactory())) {
+            writer.write("John Smith", "Rides A Bike", 12.1);
+            writer.write("Mike \"The Bike\" Smith", "Drives, fast", 95.5);
+            writer.finish();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void fromAccept_picksMostPreferredKnownType() {
+        assertThat(OutcomeFormat.fromAccept(null)).isEqualTo(OutcomeFormat.JSON);
+        assertThat(OutcomeFormat.fromAccept("*/*")).isEqualTo(OutcomeFormat.JSON);
+        assertThat(OutcomeFormat.fromAccept("text/html")).isEqualTo(OutcomeFormat.JSON);
+        assertThat(OutcomeFormat.fromAccept("application/x-ndjson")).isEqualTo(OutcomeFormat.NDJSON);
+        assertThat(OutcomeFormat.fromAccept("application/json;q=0.5, text/csv")).isEqualTo(OutcomeFormat.CSV);
+        assertThat(OutcomeFormat.fromAccept("application/octet-stream, text/csv")).isEqualTo(OutcomeFormat.BINARY);
+    }
+
+    @Test
+    void fromName_isCaseInsensitiveAndRejectsUnknownNames() {
+        assertThat(OutcomeFormat.fromName("NDJSON")).isEqualTo(OutcomeFormat.NDJSON);
+        assertThat(OutcomeFormat.fromName("json-compact")).isEqualTo(OutcomeFormat.COMPACT_JSON);
+        assertThat(OutcomeFormat.fromName("xml")).isNull();
+    }
+
+    @Test
+    void compactJsonAndNdjson_writeOneObjectPerRecord() throws Exception {
+        assertThat(new String(write(OutcomeFormat.COMPACT_JSON), StandardCharsets.UTF_8)).isEqualTo(
+                "[{\"name\":\"John Smith\",\"transport\":\"Rides A Bike\",\"top_speed\":12.1},"
+                        + "{\"name\":\"Mike \\\"The Bike\\\" Smith\",\"transport\":\"Drives, fast\",\"top_speed\":95.5}]");
+        assertThat(new String(write(OutcomeFormat.NDJSON), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"name\":\"John Smith\",\"transport\":\"Rides A Bike\",\"top_speed\":12.1}\n"
+                        + "{\"name\":\"Mike \\\"The Bike\\\" Smith\",\"transport\":\"Drives, fast\",\"top_speed\":95.5}\n");
+    }
+
+    @Test
+    void csv_quotesOnlyWhenNeeded() throws Exception {
+        assertThat(new String(write(OutcomeFormat.CSV), StandardCharsets.UTF_8)).isEqualTo(
+                "name,transport,top_speed\r\n"
+                        + "John Smith,Rides A Bike,12.1\r\n"
+                        + "\"Mike \"\"The Bike\"\" Smith\",\"Drives, fast\",95.5\r\n");
+    }
+
+    @Test
+    void binary_writesLengthPrefixedRecords() throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(write(OutcomeFormat.BINARY)));
+
+        int length = in.readInt();
+        byte[] name = new byte[in.readInt()];
+        in.readFully(name);
+        byte[] transport = new byte[in.readInt()];
+        in.readFully(transport);
+        double topSpeed = in.readDouble();
+
+        assertThat(length).isEqualTo(4 + name.length + 4 + transport.length + 8);
+        assertThat(new String(name, StandardCharsets.UTF_8)).isEqualTo("John Smith");
+        assertThat(new String(transport, StandardCharsets.UTF_8)).isEqualTo("Rides A Bike");
+        assertThat(topSpeed).isEqualTo(12.1);
+
+        //The second record can be skipped by its length alone
+        in.skipNBytes(in.readInt());
+        assertThat(in.available()).isZero();
+    }
+}
@@ -0,0 +1,104 @@
+package com.gng.test;
+
+import com.gng.test.dto.FileParseErrorDTO;
+import com.gng.test.model.ParsedLineResult;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.parser.RowValidator;
+import com.gng.test.service.ParseResultSink;
+import com.gng.test.service.PersonRecordBatchSink;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Stands in for the parser in tests: builds batches from already materialized lines and hands them on
+ * the way the real services do.
+ */
+final class ParsedLines {
+
+    private ParsedLines() {
+    }
+
+    /**
+     * Builds a batch from already materialized lines, encoding their text into a fresh buffer.
+     */
+    static PersonRecordBatch batchOf(ParsedLineResult... lines) {
+        return batchOf(List.of(lines));
+    }
+
+    static PersonRecordBatch batchOf(List<ParsedLineResult> lines) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[][] bounds = new int[lines.size()][];
+
+        for (int i = 0; i < lines.size(); i++) {
+            ParsedLineResult line = lines.get(i);
+            PersonRecord record = line.getRecord();
+            String[] texts = record == null
+                    ? new String[]{line.getRawLine()}
+                    : new String[]{line.getRawLine(), record.uuid(), record.id(), record.name(), record.likes(), record.transport()};
+
+            bounds[i] = new int[texts.length * 2];
+            for (int t = 0; t < texts.length; t++) {
+                bounds[i][t * 2] = bytes.size();
+                bytes.writeBytes(texts[t] == null ? new byte[0] : texts[t].getBytes(StandardCharsets.UTF_8));
+                bounds[i][t * 2 + 1] = bytes.size();
+            }
+        }
+
+        PersonRecordBatch batch = new PersonRecordBatch(ByteBuffer.wrap(bytes.toByteArray()), lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            ParsedLineResult line = lines.get(i);
+            int[] b = bounds[i];
+            if (line.getRecord() == null) {
+                batch.addParseError(line.getLineNumber(), b[0], b[1], line.getParseError());
+                continue;
+            }
+
+            int row = batch.addRecord(line.getLineNumber(), b[0], b[1], line.getRecord().avg_speed(), line.getRecord().top_speed());
+            for (int column = 0; column < PersonRecordBatch.TEXT_COLUMNS; column++) {
+                batch.setText(row, column, b[(column + 1) * 2], b[(column + 1) * 2 + 1]);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Answers FileParsingService.parseBatches(file, schema, validator, sink): runs the row validator over
+     * the record rows like the real parser does, then hands the batch over.
+     */
+    static Answer<Void> parsedAs(ParsedLineResult... lines) {
+        return invocation -> {
+            RowValidator validator = invocation.getArgument(2);
+            PersonRecordBatchSink sink = invocation.getArgument(3);
+            PersonRecordBatch batch = batchOf(lines);
+            for (int row = 0; row < batch.size(); row++) {
+                if (validator != null && batch.hasRecord(row)) validator.validate(batch, row);
+            }
+            sink.accept(batch);
+            return null;
+        };
+    }
+
+    /**
+     * Answers FileValidationService.parseAndValidate(file, schema, validate, checkDuplicates, incremental, sink):
+     * emits the records and parse errors in line order, the way FileValidationServiceImpl does.
+     */
+    static Answer<Void> validatedAs(ParsedLineResult... lines) {
+        return invocation -> {
+            ParseResultSink sink = invocation.getArgument(5);
+            PersonRecordBatch batch = batchOf(lines);
+            for (int row = 0; row < batch.size(); row++) {
+                if (batch.hasRecord(row)) {
+                    sink.onRecord(batch, row);
+                } else {
+                    sink.onError(new FileParseErrorDTO(batch.lineNumber(row), batch.rawLine(row), batch.parseError(row)));
+                }
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.gng.test;
+
+import com.gng.test.model.ParsedLineResult;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.validation.PersonRecordValidator;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonRecordValidatorTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final PersonRecordValidator recordValidator = PersonRecordValidator.compile(validator);
+
+    private List<String> beanValidationMessages(PersonRecord record) {
+        return validator.validate(record).stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void validate_matchesBeanValidation() {
+        List<String> texts = List.of("", "   ", " a ", "Alice",
+                "550e8400-e29b-41d4-a716-446655440000", "550E8400-E29B-41D4-A716-44665544000G",
+                "550e8400-e29b-41d4-a716-4466554400000", "------------------------------------",
+                "é50e8400-e29b-41d4-a716-44665544000");
+        List<Double> speeds = List.of(0.0, -0.0, 12.5, -1.0, -Double.MIN_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+        List<PersonRecord> records = new ArrayList<>();
+        for (String uuid : texts) {
+            for (double speed : speeds) {
+                records.add(new PersonRecord(uuid, "1", "Alice", "Tea", "Car", speed, 10.0));
+            }
+            records.add(new PersonRecord("550e8400-e29b-41d4-a716-446655440000", uuid, uuid, uuid, uuid, 1.0, -1.0));
+        }
+        records.add(new PersonRecord(null, null, null, null, null, 0.0, 0.0));
+
+        for (PersonRecord record : records) {
+            assertThat(recordValidator.validate(record))
+                    .as(record.toString())
+                    .containsExactlyInAnyOrderElementsOf(beanValidationMessages(record));
+        }
+    }
+
+    @Test
+    void validateBatchRow_matchesRecordValidation() {
+        PersonRecord invalid = new PersonRecord("not-a-uuid", " ", "Bob", "Tea", "Bike", -2.0, 20.0);
+        PersonRecord valid = new PersonRecord("550e8400-e29b-41d4-a716-446655440000", "1", "Alice", "Tea", "Car", 0.0, 1.0);
+        PersonRecordBatch batch = ParsedLines.batchOf(List.of(
+                new ParsedLineResult(1, "bad", invalid, null),
+                new ParsedLineResult(2, "good", valid, null)
+        ));
+
+        assertThat(recordValidator.validate(batch, 0))
+                .containsExactly("uuid: Invalid UUID format", "id: Code is required", "avg_speed: value1 must be >= 0.0");
+        assertThat(recordValidator.validate(batch, 1)).isEmpty();
+    }
+}
@@ -0,0 +1,68 @@
+package com.gng.test;
+
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.parser.Chunk;
+import com.gng.test.parser.PersonLineParser;
+import com.gng.test.parser.PersonSchema;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersonSchemaTest {
+
+    private static PersonRecordBatch parse(PersonSchema schema, String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new PersonLineParser(schema, null).parseChunk(new Chunk(ByteBuffer.wrap(bytes), bytes.length, 1));
+    }
+
+    @Test
+    void compile_reorderedLayout_mapsColumnsByName() throws Exception {
+        // given
+        PersonSchema schema = PersonSchema.compile(';', List.of(
+                "name:notrim", "top_speed:decimal", "-", "uuid", "id", "transport", "likes", "avg_speed"));
+
+        // when
+        PersonRecordBatch batch = parse(schema,
+                " Alice ;120.0;ignored;550e8400-e29b-41d4-a716-446655440000;123; Car ;Coffee;45.5\n"
+                        + "Bob;fast;x;550e8400-e29b-41d4-a716-446655440001;2;Bike;Tea;10\n"
+                        + "too;few\n");
+
+        // then
+        assertThat(batch.toRecord(0).name()).isEqualTo(" Alice ");
+        assertThat(batch.toRecord(0).transport()).isEqualTo("Car");
+        assertThat(batch.toRecord(0).uuid()).isEqualTo("550e8400-e29b-41d4-a716-446655440000");
+        assertThat(batch.toRecord(0).avg_speed()).isEqualTo(45.5);
+        assertThat(batch.toRecord(0).top_speed()).isEqualTo(120.0);
+        assertThat(batch.parseError(1)).isEqualTo("Invalid number format in top_speed");
+        assertThat(batch.parseError(2)).isEqualTo("Incorrect number of fields, expected 8");
+    }
+
+    @Test
+    void compile_defaultLayout_keepsTodaysMessages() throws Exception {
+        PersonRecordBatch batch = parse(PersonSchema.DEFAULT, "a|b|c|d|e|x|y\nbad|line\n");
+
+        assertThat(batch.parseError(0)).isEqualTo("Invalid number format in avg_speed and top_speed");
+        assertThat(batch.parseError(1)).isEqualTo("Incorrect number of fields, expected 7");
+    }
+
+    @Test
+    void compile_invalidLayouts_areRejected() {
+        assertThatThrownBy(() -> PersonSchema.compile('|', List.of("uuid", "id", "name", "likes", "transport", "avg_speed")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("top_speed");
+        assertThatThrownBy(() -> PersonSchema.compile('|', List.of("uuid", "id", "name", "likes", "transport", "avg_speed", "top_speed", "age")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown column age");
+        assertThatThrownBy(() -> PersonSchema.compile('|', List.of("uuid:decimal", "id", "name", "likes", "transport", "avg_speed", "top_speed")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("uuid is text");
+        assertThatThrownBy(() -> PersonSchema.compile('|', List.of("uuid", "uuid", "id", "name", "likes", "transport", "avg_speed", "top_speed")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("more than once");
+    }
+}
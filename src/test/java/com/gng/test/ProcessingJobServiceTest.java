@@ -0,0 +1,143 @@
+package com.gng.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gng.test.dto.FileParseErrorDTO;
+import com.gng.test.model.ParsedLineResult;
+import com.gng.test.model.PersonRecord;
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.output.OutcomeFormat;
+import com.gng.test.parser.Compression;
+import com.gng.test.service.AdmissionPermit;
+import com.gng.test.service.FileValidationService;
+import com.gng.test.service.ParseResultSink;
+import com.gng.test.service.impl.ProcessingJobServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class ProcessingJobServiceTest {
+
+    @TempDir
+    Path jobDir;
+
+    private FileValidationService fileValidationService;
+
+    @BeforeEach
+    void setUp() {
+        fileValidationService = mock(FileValidationService.class);
+    }
+
+    private static ProcessingOptions options(OutcomeFormat format) {
+        return new ProcessingOptions(Compression.NONE, true, false, false, 10, format, null);
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("file", "data.txt", "text/plain", "content".getBytes());
+    }
+
+    private static ProcessingJob awaitDone(ProcessingJobServiceImpl service, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ProcessingJob job = service.find(id);
+        while (!job.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return job;
+    }
+
+    //Emits the given lines the way FileValidationServiceImpl does
+    private void stubOutcome(ParsedLineResult... lines) throws Exception {
+        doAnswer(ParsedLines.validatedAs(lines)).when(fileValidationService).parseAndValidate(any(), any(), anyBoolean(), anyBoolean(), anyBoolean(), any(ParseResultSink.class));
+    }
+
+    @Test
+    void submit_validUpload_writesOutcomeFileInRequestedFormat() throws Exception {
+        stubOutcome(new ParsedLineResult(1, "L1",
+                new PersonRecord("550e8400-e29b-41d4-a716-446655440000", "1", "Alice", "Tea", "Car", 10.0, 20.0), null));
+        ProcessingJobServiceImpl service = new ProcessingJobServiceImpl(fileValidationService, new ObjectMapper(), jobDir, 1, 4, 60);
+
+        ProcessingJob job = awaitDone(service, service.submit(upload(), options(OutcomeFormat.NDJSON), AdmissionPermit.NONE).getId());
+
+        assertThat(job.getStatus()).isEqualTo(ProcessingJob.Status.SUCCEEDED);
+        assertThat(Files.readString(job.getResultFile()))
+                .isEqualTo("{\"name\":\"Alice\",\"transport\":\"Car\",\"top_speed\":20.0}\n");
+        //Only the result is kept, not the copy of the upload
+        try (var files = Files.list(jobDir)) {
+            assertThat(files).containsExactly(job.getResultFile());
+        }
+    }
+
+    @Test
+    void submit_invalidUpload_keepsErrorListInsteadOfOutcome() throws Exception {
+        stubOutcome(
+                new ParsedLineResult(1, "L1",
+                        new PersonRecord("550e8400-e29b-41d4-a716-446655440000", "1", "Alice", "Tea", "Car", 10.0, 20.0), null),
+                new ParsedLineResult(2, "bad", null, "Incorrect number of fields, expected 7"));
+        ProcessingJobServiceImpl service = new ProcessingJobServiceImpl(fileValidationService, new ObjectMapper(), jobDir, 1, 4, 60);
+
+        ProcessingJob job = awaitDone(service, service.submit(upload(), options(OutcomeFormat.JSON), AdmissionPermit.NONE).getId());
+
+        assertThat(job.getStatus()).isEqualTo(ProcessingJob.Status.INVALID);
+        assertThat(job.getErrorCount()).isEqualTo(1);
+        FileParseErrorDTO[] errors = new ObjectMapper().readValue(job.getResultFile().toFile(), FileParseErrorDTO[].class);
+        assertThat(errors).containsExactly(new FileParseErrorDTO(2, "bad", "Incorrect number of fields, expected 7"));
+        try (var files = Files.list(jobDir)) {
+            assertThat(files).containsExactly(job.getResultFile());
+        }
+    }
+
+    @Test
+    void submit_queueFull_rejectsAndKeepsNothing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(10, TimeUnit.SECONDS))
+                .when(fileValidationService).parseAndValidate(any(), any(), anyBoolean(), anyBoolean(), anyBoolean(), any(ParseResultSink.class));
+        ProcessingJobServiceImpl service = new ProcessingJobServiceImpl(fileValidationService, new ObjectMapper(), jobDir, 1, 1, 60);
+
+        try {
+            ProcessingJob running = service.submit(upload(), options(OutcomeFormat.JSON), AdmissionPermit.NONE);
+            ProcessingJob queued = service.submit(upload(), options(OutcomeFormat.JSON), AdmissionPermit.NONE);
+
+            AdmissionPermit rejectedPermit = mock(AdmissionPermit.class);
+            assertThatThrownBy(() -> service.submit(upload(), options(OutcomeFormat.JSON), rejectedPermit))
+                    .isInstanceOf(RejectedExecutionException.class);
+            verify(rejectedPermit).close();
+            assertThat(service.find(running.getId())).isNotNull();
+            assertThat(service.find(queued.getId()).getStatus()).isEqualTo(ProcessingJob.Status.QUEUED);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void submit_holdsAdmissionPermitUntilJobIsDone() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(10, TimeUnit.SECONDS))
+                .when(fileValidationService).parseAndValidate(any(), any(), anyBoolean(), anyBoolean(), anyBoolean(), any(ParseResultSink.class));
+        ProcessingJobServiceImpl service = new ProcessingJobServiceImpl(fileValidationService, new ObjectMapper(), jobDir, 1, 4, 60);
+        AdmissionPermit permit = mock(AdmissionPermit.class);
+
+        ProcessingJob job = service.submit(upload(), options(OutcomeFormat.JSON), permit);
+        verify(permit, after(100).never()).close();
+        release.countDown();
+
+        assertThat(awaitDone(service, job.getId()).isDone()).isTrue();
+        verify(permit, timeout(1000)).close();
+    }
+}
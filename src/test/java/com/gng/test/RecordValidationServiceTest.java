@@ -1,8 +1,8 @@
 package com.gng.test;
 
-import com.gng.test.dto.FileParseErrorDTO;
 import com.gng.test.model.ParsedLineResult;
 import com.gng.test.model.PersonRecord;
+import com.gng.test.model.PersonRecordBatch;
 import com.gng.test.service.impl.RecordValidationServiceImpl;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -10,18 +10,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class RecordValidationServiceTest {
 
-    private Validator validator;
     private RecordValidationServiceImpl validationService;
 
     @BeforeEach
     void setUp() {
-        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
         validationService = new RecordValidationServiceImpl(validator);
     }
 
@@ -38,77 +36,21 @@ class RecordValidationServiceTest {
     }
 
     @Test
-    void validateRecords_whenValidRecord_returnsNoErrors() {
-        ParsedLineResult line = new ParsedLineResult(1, "valid line", createValidRecord(), null);
-
-        List<FileParseErrorDTO> errors = validationService.validateRecords(List.of(line));
-
-        assertThat(errors).isEmpty();
-    }
-
-    @Test
-    void validateRecords_whenRecordViolatesConstraints_returnsErrors() {
-        // invalid record — fails multiple validation rules
-        PersonRecord invalidRecord = new PersonRecord(
-                "invalid-uuid",
-                "",
-                "",
-                "",
-                "",
-                -1.0,
-                -10.0
-        );
-
-        ParsedLineResult parsedLine = new ParsedLineResult(1, "bad|line|data", invalidRecord, null);
-
-        List<FileParseErrorDTO> errors = validationService.validateRecords(List.of(parsedLine));
-
-        assertThat(errors).isNotEmpty();
-        assertThat(errors)
-                .allMatch(e -> e.getLineNumber() == 1)
-                .anyMatch(e -> e.getMessage().contains("Invalid UUID format"))
-                .anyMatch(e -> e.getMessage().contains("must be >= 0.0"))
-                .anyMatch(e -> e.getMessage().contains("is required"));
-    }
-
-    @Test
-    void validateRecords_whenRecordIsNull_skipsValidation() {
-        ParsedLineResult line = new ParsedLineResult(3, "bad line", null, "Parse error");
-
-        List<FileParseErrorDTO> errors = validationService.validateRecords(List.of(line));
-
-        assertThat(errors).isEmpty();
-    }
-
-    @Test
-    void validateRecords_multipleLines_correctlyCollectsErrors() {
-        ParsedLineResult valid = new ParsedLineResult(1, "good line", createValidRecord(), null);
-
-        PersonRecord invalid = new PersonRecord(
-                "not-a-uuid", "2", "Mihai", "Tea", "Bike", 10.0, 20.0
-        );
-
-        ParsedLineResult bad = new ParsedLineResult(2, "bad line", invalid, null);
-
-        List<FileParseErrorDTO> errors = validationService.validateRecords(List.of(valid, bad));
-
-        assertThat(errors).isNotEmpty();
-        assertThat(errors)
-                .extracting(FileParseErrorDTO::getLineNumber)
-                .containsExactly(2);
-    }
-
-    @Test
-    void validateRecords_allInvalidFields_reportsEachConstraint() {
-        PersonRecord invalid = new PersonRecord("", "", "", "", "", -5.0, -10.0);
-        ParsedLineResult parsed = new ParsedLineResult(4, "invalid line", invalid, null);
-
-        Set violations = validator.validate(invalid);
-        assertThat(violations.size()).isGreaterThan(0);
-
-        List<FileParseErrorDTO> errors = validationService.validateRecords(List.of(parsed));
-
-        assertThat(errors.size()).isEqualTo(violations.size());
-        assertThat(errors.get(0).getLineContent()).isEqualTo("invalid line");
+    void validateRow_flagsInvalidRowsOnTheBatch() {
+        PersonRecord invalid = new PersonRecord("not-a-uuid", "2", "Mihai", "Tea", "Bike", -1.0, 20.0);
+        PersonRecordBatch batch = ParsedLines.batchOf(List.of(
+                new ParsedLineResult(1, "good line", createValidRecord(), null),
+                new ParsedLineResult(2, "bad line", invalid, null)
+        ));
+
+        validationService.validateRow(batch, 0);
+        validationService.validateRow(batch, 1);
+
+        assertThat(batch.isInvalid(0)).isFalse();
+        assertThat(batch.isInvalid(1)).isTrue();
+        assertThat(batch.violationCount()).isEqualTo(2);
+        assertThat(batch.violationRow(0)).isEqualTo(1);
+        assertThat(List.of(batch.violationMessage(0), batch.violationMessage(1)))
+                .containsExactly("uuid: Invalid UUID format", "avg_speed: value1 must be >= 0.0");
     }
-}
\ No newline at end of file
+}
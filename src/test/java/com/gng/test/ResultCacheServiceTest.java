@@ -0,0 +1,168 @@
+package com.gng.test;
+
+import com.gng.test.model.CachedResult;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.ResultCacheKey;
+import com.gng.test.output.OutcomeFormat;
+import com.gng.test.parser.Compression;
+import com.gng.test.service.ContentDigest;
+import com.gng.test.service.ResultRecording;
+import com.gng.test.service.impl.ResultCacheServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultCacheServiceTest {
+
+    private static final int MAX_MEMORY_ENTRY_BYTES = 16;
+
+    @TempDir
+    Path diskDir;
+
+    private ResultCacheServiceImpl service(boolean diskEnabled) throws IOException {
+        return new ResultCacheServiceImpl(true, 600, 1 << 20, MAX_MEMORY_ENTRY_BYTES, diskEnabled, diskDir, 1 << 20);
+    }
+
+    private static ProcessingOptions options(boolean validate) {
+        return new ProcessingOptions(Compression.NONE, validate, false, false, 10, OutcomeFormat.JSON, null);
+    }
+
+    private static MockMultipartFile upload(String content) {
+        return new MockMultipartFile("file", "data.txt", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void record(ResultCacheServiceImpl service, ResultCacheKey key, String outcome, ByteArrayOutputStream client) throws IOException {
+        try (ResultRecording recording = service.record(key, client)) {
+            try (OutputStream out = recording.stream()) {
+                out.write(outcome.getBytes(StandardCharsets.UTF_8));
+            }
+            recording.commit();
+        }
+    }
+
+    private static String body(CachedResult result) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void keyFor_sameBytesAndOptions_giveTheSameKey() throws IOException {
+        ResultCacheServiceImpl service = service(false);
+
+        ResultCacheKey first = service.keyFor(upload("hello"), options(true));
+
+        assertThat(first.sha256()).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(service.keyFor(upload("hello"), options(true))).isEqualTo(first);
+        assertThat(service.keyFor(upload("hello"), options(false))).isNotEqualTo(first);
+    }
+
+    @Test
+    void lookupKey_firstUpload_isLeftToTheParseToHash() throws IOException {
+        ResultCacheServiceImpl service = service(false);
+        MockMultipartFile upload = upload("hello");
+        assertThat(service.lookupKey(upload, options(true))).isNull();
+
+        // when the parse feeds it every byte
+        ContentDigest digest = service.newDigest();
+        digest.update(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+        ResultCacheKey key = service.keyOf(upload, options(true), digest);
+
+        // then
+        assertThat(key).isEqualTo(service.keyFor(upload, options(true)));
+        assertThat(service.lookupKey(upload("hello"), options(true))).isEqualTo(key);
+        assertThat(service.lookupKey(upload("hello"), options(false))).isNull();
+    }
+
+    @Test
+    void keyOf_parseStoppedEarly_hashesTheWholeUpload() throws IOException {
+        ResultCacheServiceImpl service = service(false);
+        MockMultipartFile upload = upload("hello");
+        ContentDigest digest = service.newDigest();
+        digest.update(ByteBuffer.wrap("he".getBytes(StandardCharsets.UTF_8)));
+
+        ResultCacheKey key = service.keyOf(upload, options(true), digest);
+
+        assertThat(key).isEqualTo(service.keyFor(upload, options(true)));
+    }
+
+    @Test
+    void record_smallOutcome_isServedFromMemory() throws IOException {
+        ResultCacheServiceImpl service = service(false);
+        ResultCacheKey key = service.keyFor(upload("hello"), options(true));
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+
+        assertThat(service.get(key)).isNull();
+        record(service, key, "[1,2]", client);
+
+        CachedResult cached = service.get(key);
+        assertThat(client.toString(StandardCharsets.UTF_8)).isEqualTo("[1,2]");
+        assertThat(cached.valid()).isTrue();
+        assertThat(cached.file()).isNull();
+        assertThat(body(cached)).isEqualTo("[1,2]");
+    }
+
+    @Test
+    void record_largeOutcome_spillsToDisk() throws IOException {
+        ResultCacheServiceImpl service = service(true);
+        ResultCacheKey key = service.keyFor(upload("hello"), options(true));
+        String outcome = "[\"a record well past the memory entry limit\"]";
+
+        record(service, key, outcome, new ByteArrayOutputStream());
+
+        CachedResult cached = service.get(key);
+        assertThat(cached.file()).isNotNull();
+        assertThat(cached.size()).isEqualTo(outcome.length());
+        assertThat(body(cached)).isEqualTo(outcome);
+    }
+
+    @Test
+    void record_largeOutcomeWithoutDiskTier_isNotCached() throws IOException {
+        ResultCacheServiceImpl service = service(false);
+        ResultCacheKey key = service.keyFor(upload("hello"), options(true));
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+
+        record(service, key, "[\"a record well past the memory entry limit\"]", client);
+
+        assertThat(client.size()).isGreaterThan(MAX_MEMORY_ENTRY_BYTES);
+        assertThat(service.get(key)).isNull();
+    }
+
+    @Test
+    void record_notCommitted_cachesNothingAndDropsTheSpillFile() throws IOException {
+        ResultCacheServiceImpl service = service(true);
+        ResultCacheKey key = service.keyFor(upload("hello"), options(true));
+
+        try (ResultRecording recording = service.record(key, new ByteArrayOutputStream())) {
+            recording.stream().write(new byte[100]);
+        }
+
+        assertThat(service.get(key)).isNull();
+        try (var files = Files.list(diskDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void putErrors_keepsTheReportAndTruncation() throws IOException {
+        ResultCacheServiceImpl service = service(false);
+        ResultCacheKey key = service.keyFor(upload("not|a|record"), options(true));
+
+        service.putErrors(key, "[{}]".getBytes(StandardCharsets.UTF_8), true);
+
+        CachedResult cached = service.get(key);
+        assertThat(cached.valid()).isFalse();
+        assertThat(cached.errorsTruncated()).isTrue();
+        assertThat(body(cached)).isEqualTo("[{}]");
+    }
+}
@@ -0,0 +1,62 @@
+package com.gng.test;
+
+import com.gng.test.parser.LineScanner;
+import com.gng.test.parser.StructuralIndex;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructuralIndexTest {
+
+    private static List<Integer> positions(StructuralIndex index, ByteBuffer buffer, int from, int to) {
+        List<Integer> positions = new ArrayList<>();
+        index.reset(buffer, from, to);
+        int position;
+        while ((position = index.next()) >= 0) {
+            positions.add(position);
+        }
+        return positions;
+    }
+
+    @Test
+    void next_findsLineBreaksAndDelimitersInOrder() {
+        ByteBuffer buffer = ByteBuffer.wrap("a|bc|\r\nd|é\n|".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(positions(new StructuralIndex('|'), buffer, 0, buffer.limit()))
+                .containsExactly(1, 4, 5, 6, 8, 11, 12);
+    }
+
+    @Test
+    void next_swarAndScalarAgreeOnRandomInput() {
+        Random random = new Random(42);
+        byte[] alphabet = {'\n', '\r', '|', ';', 'a', ' ', 0, (byte) 0x8A, (byte) 0x8D, (byte) 0xFC, (byte) 0xFF};
+
+        for (int round = 0; round < 2_000; round++) {
+            byte[] bytes = new byte[random.nextInt(round % 50 == 0 ? 40_000 : 100)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int from = random.nextInt(bytes.length + 1);
+            int to = from + random.nextInt(bytes.length - from + 1);
+
+            assertThat(positions(new StructuralIndex('|', true), buffer, from, to))
+                    .isEqualTo(positions(new StructuralIndex('|', false), buffer, from, to));
+        }
+    }
+
+    @Test
+    void countLines_countsCrLfOnceAcrossWordBoundaries() {
+        ByteBuffer buffer = ByteBuffer.wrap("1234567\r\n89\r\r\n\n\rabcdef\r".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(LineScanner.countLines(buffer, 0, buffer.limit())).isEqualTo(6);
+        //A '\r' at the end of the range counts even if a '\n' follows outside it
+        assertThat(LineScanner.countLines(buffer, 0, 8)).isEqualTo(1);
+    }
+}
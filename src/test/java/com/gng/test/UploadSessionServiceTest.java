@@ -0,0 +1,163 @@
+package com.gng.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gng.test.model.ProcessingJob;
+import com.gng.test.model.ProcessingOptions;
+import com.gng.test.model.UploadSession;
+import com.gng.test.output.OutcomeFormat;
+import com.gng.test.parser.Compression;
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.service.AdmissionPermit;
+import com.gng.test.service.RecordValidationService;
+import com.gng.test.service.impl.FileParsingServiceImpl;
+import com.gng.test.service.impl.FileValidationServiceImpl;
+import com.gng.test.service.impl.UploadSessionServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class UploadSessionServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadSessionServiceImpl service;
+
+    private static final int MAX_SESSIONS = 2;
+    private static final long IDLE_TIMEOUT_SECONDS = 2;
+    private static final long COMPLETE_WAIT_SECONDS = 10;
+    private static final long TTL_SECONDS = 3600;
+
+    @BeforeEach
+    void setUp() {
+        FileValidationServiceImpl fileValidationService = new FileValidationServiceImpl(sequentialParser(), mock(RecordValidationService.class));
+        service = new UploadSessionServiceImpl(fileValidationService, new ObjectMapper(), uploadDir,
+                MAX_SESSIONS, IDLE_TIMEOUT_SECONDS, COMPLETE_WAIT_SECONDS, TTL_SECONDS);
+    }
+
+    //Sequential and never memory-mapped, so the parts are parsed as they stream in
+    private static FileParsingServiceImpl sequentialParser() {
+        boolean parallelEnabled = false;
+        int threads = 1;
+        double requestShare = 1.0;
+        int minChunkBytes = 16;
+        long mmapMinBytes = Long.MAX_VALUE;
+        int dictionaryMaxEntries = 256;
+        int incrementalMinChunkBytes = 65536;
+        int incrementalAvgChunkBytes = 262144;
+        long chunkCacheMaxBytes = 1 << 28;
+        return new FileParsingServiceImpl(parallelEnabled, threads, requestShare, minChunkBytes, mmapMinBytes,
+                dictionaryMaxEntries, incrementalMinChunkBytes, incrementalAvgChunkBytes, chunkCacheMaxBytes,
+                PersonSchema.DEFAULT, new SimpleMeterRegistry());
+    }
+
+    private static ProcessingOptions options() {
+        return new ProcessingOptions(Compression.NONE, false, false, false, 10, OutcomeFormat.CSV, null);
+    }
+
+    private static InputStream part(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+    @Test
+    void parts_outOfOrderAndSplitMidLine_areParsedAsOneFile() throws Exception {
+        // given
+        UploadSession session = service.start(options(), AdmissionPermit.NONE);
+
+        // when
+        service.putPart(session.getId(), 2, part("n Smith|Likes Apricots|Rides A Bike|6.2|12.1\n3ce2d17b-e66a-4c1e-bca3-40eb1c9222c7|2X2D24|Mike"));
+        service.putPart(session.getId(), 1, part("18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|Joh"));
+        service.putPart(session.getId(), 3, part(" Smith|Likes Grape|Drives an SUV|35.0|95.5\n"));
+        UploadSession completed = service.complete(session.getId(), 3);
+
+        // then
+        ProcessingJob job = completed.getJob();
+        assertThat(job.getStatus()).isEqualTo(ProcessingJob.Status.SUCCEEDED);
+        assertThat(Files.readString(job.getResultFile())).isEqualTo("""
+                name,transport,top_speed
+                John Smith,Rides A Bike,12.1
+                Mike Smith,Drives an SUV,95.5
+                """);
+        //Only the result is kept
+        try (var files = Files.list(session.getDir())) {
+            assertThat(files).containsExactly(job.getResultFile());
+        }
+    }
+
+    @Test
+    void putPart_retryOfReceivedPart_keepsFirstCopy() throws Exception {
+        // given
+        UploadSession session = service.start(options(), AdmissionPermit.NONE);
+        service.putPart(session.getId(), 1, part("18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1\n"));
+
+        // when
+        service.putPart(session.getId(), 1, part("something else entirely\n"));
+        service.complete(session.getId(), 1);
+
+        // then
+        assertThat(session.getReceivedParts()).isEqualTo(1);
+        assertThat(session.getJob().getStatus()).isEqualTo(ProcessingJob.Status.SUCCEEDED);
+        assertThat(Files.readString(session.getJob().getResultFile())).contains("John Smith");
+    }
+
+    @Test
+    void complete_withMissingParts_isRefusedAndUploadCanCarryOn() throws Exception {
+        // given
+        UploadSession session = service.start(options(), AdmissionPermit.NONE);
+        service.putPart(session.getId(), 2, part(" Smith|Likes Grape|Drives an SUV|35.0|95.5\n"));
+
+        // when / then
+        assertThatThrownBy(() -> service.complete(session.getId(), 3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Missing parts: 1, 3");
+        assertThat(session.getNextPart()).isEqualTo(1);
+
+        service.putPart(session.getId(), 1, part("3ce2d17b-e66a-4c1e-bca3-40eb1c9222c7|2X2D24|Mike"));
+        assertThat(service.complete(session.getId(), 2).getJob().getStatus()).isEqualTo(ProcessingJob.Status.SUCCEEDED);
+    }
+
+    @Test
+    void start_pastMaxSessions_isRejectedUntilOneIsAborted() throws Exception {
+        // given
+        UploadSession first = service.start(options(), AdmissionPermit.NONE);
+        service.start(options(), AdmissionPermit.NONE);
+
+        // when / then
+        assertThatThrownBy(() -> service.start(options(), AdmissionPermit.NONE)).isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(service.abort(first.getId())).isTrue();
+        assertThat(first.awaitFinished(Duration.ofSeconds(10))).isTrue();
+        assertThat(service.find(first.getId())).isNull();
+        assertThat(first.getDir()).doesNotExist();
+        assertThat(service.start(options(), AdmissionPermit.NONE)).isNotNull();
+    }
+
+    @Test
+    void start_holdsAdmissionPermitUntilSessionIsDone() throws Exception {
+        // given
+        AdmissionPermit permit = mock(AdmissionPermit.class);
+        UploadSession session = service.start(options(), permit);
+
+        // when
+        service.putPart(session.getId(), 1, part("18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1\n"));
+
+        // then
+        verify(permit, never()).close();
+        service.complete(session.getId(), 1);
+        verify(permit).close();
+    }
+}
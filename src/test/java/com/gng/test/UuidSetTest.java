@@ -0,0 +1,55 @@
+package com.gng.test;
+
+import com.gng.test.validation.UuidSet;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidSetTest {
+
+    private static int add(UuidSet set, String value, int lineNumber) {
+        ByteBuffer buffer = ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+        return set.add(buffer, 0, buffer.limit(), lineNumber);
+    }
+
+    @Test
+    void add_repeatedUuid_returnsLineOfFirstOccurrence() {
+        UuidSet set = new UuidSet(4);
+
+        assertThat(add(set, "550e8400-e29b-41d4-a716-446655440000", 1)).isEqualTo(UuidSet.ADDED);
+        assertThat(add(set, "550e8400-e29b-41d4-a716-446655440001", 2)).isEqualTo(UuidSet.ADDED);
+        assertThat(add(set, "550E8400-E29B-41D4-A716-446655440000", 5)).isEqualTo(1);
+        assertThat(add(set, "550e8400-e29b-41d4-a716-446655440001", 7)).isEqualTo(2);
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    void add_malformedUuid_isNotTracked() {
+        UuidSet set = new UuidSet(4);
+
+        assertThat(add(set, "invalid-uuid", 1)).isEqualTo(UuidSet.NOT_A_UUID);
+        assertThat(add(set, "550e8400e29b-41d4-a716-4466554400000", 2)).isEqualTo(UuidSet.NOT_A_UUID);
+        assertThat(add(set, "550e8400-e29b-41d4-a716-44665544000g", 3)).isEqualTo(UuidSet.NOT_A_UUID);
+        assertThat(set.size()).isZero();
+    }
+
+    @Test
+    void add_beyondInitialCapacity_keepsEveryEntry() {
+        UuidSet set = new UuidSet(8);
+        UUID[] uuids = new UUID[10_000];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = UUID.randomUUID();
+            assertThat(set.add(uuids[i].getMostSignificantBits(), uuids[i].getLeastSignificantBits(), i + 1))
+                    .isEqualTo(UuidSet.ADDED);
+        }
+
+        for (int i = 0; i < uuids.length; i++) {
+            assertThat(add(set, uuids[i].toString(), uuids.length + i + 1)).isEqualTo(i + 1);
+        }
+        assertThat(set.size()).isEqualTo(uuids.length);
+    }
+}
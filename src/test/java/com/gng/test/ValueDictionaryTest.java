@@ -0,0 +1,67 @@
+package com.gng.test;
+
+import com.gng.test.model.PersonRecordBatch;
+import com.gng.test.parser.Chunk;
+import com.gng.test.parser.PersonLineParser;
+import com.gng.test.parser.PersonSchema;
+import com.gng.test.parser.ValueDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValueDictionaryTest {
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void codeOf_sameBytes_returnSameCodeAndSharedString() {
+        ValueDictionary dictionary = new ValueDictionary(8);
+        ByteBuffer buffer = bytes("Car|Bike|Car");
+
+        int car = dictionary.codeOf(buffer, 0, 3);
+        int bike = dictionary.codeOf(buffer, 4, 8);
+        int carAgain = dictionary.codeOf(buffer, 9, 12);
+
+        assertThat(car).isNotEqualTo(bike);
+        assertThat(carAgain).isEqualTo(car);
+        assertThat(dictionary.value(car)).isEqualTo("Car");
+        assertThat(dictionary.value(bike)).isEqualTo("Bike");
+        assertThat(dictionary.hits()).isEqualTo(1);
+        assertThat(dictionary.misses()).isEqualTo(2);
+    }
+
+    @Test
+    void codeOf_dictionaryFull_leavesNewValuesUncoded() {
+        ValueDictionary dictionary = new ValueDictionary(2);
+        ByteBuffer buffer = bytes("ABC");
+
+        assertThat(dictionary.codeOf(buffer, 0, 1)).isEqualTo(0);
+        assertThat(dictionary.codeOf(buffer, 1, 2)).isEqualTo(1);
+        assertThat(dictionary.codeOf(buffer, 2, 3)).isEqualTo(-1);
+        assertThat(dictionary.codeOf(buffer, 0, 1)).isEqualTo(0);
+        assertThat(dictionary.size()).isEqualTo(2);
+    }
+
+    @Test
+    void parseChunk_withDictionaries_sharesRepeatedValues() throws Exception {
+        ValueDictionary[] dictionaries = new ValueDictionary[PersonRecordBatch.TEXT_COLUMNS];
+        dictionaries[PersonRecordBatch.TRANSPORT] = new ValueDictionary(1);
+        byte[] content = ("550e8400-e29b-41d4-a716-446655440000|1|Alice|Coffee|Car|45.5|120.0\n"
+                + "550e8400-e29b-41d4-a716-446655440001|2|Bob|Tea|Car|10|20\n"
+                + "550e8400-e29b-41d4-a716-446655440002|3|Eve|Tea|Bike|10|20\n").getBytes(StandardCharsets.UTF_8);
+
+        PersonRecordBatch batch = new PersonLineParser(PersonSchema.DEFAULT, dictionaries)
+                .parseChunk(new Chunk(ByteBuffer.wrap(content), content.length, 1));
+
+        assertThat(batch.transport(0)).isEqualTo("Car");
+        assertThat(batch.transport(1)).isSameAs(batch.transport(0));
+        //The dictionary only has room for "Car", so "Bike" is decoded from its offsets
+        assertThat(batch.transport(2)).isEqualTo("Bike");
+        assertThat(batch.likes(1)).isEqualTo("Tea");
+    }
+}
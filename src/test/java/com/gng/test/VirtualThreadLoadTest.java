@@ -0,0 +1,106 @@
+package com.gng.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires a burst of uploads at a real server whose geo API answers slowly, with Tomcat's pool capped at
+ * {@link #PLATFORM_THREADS}. On platform threads the burst can't finish faster than the pool allows;
+ * on virtual threads the blocked requests don't hold a pool thread, so they overlap.
+ * Run with ./gradlew loadTest.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.threads.virtual.enabled=true",
+		"server.tomcat.threads.max=" + VirtualThreadLoadTest.PLATFORM_THREADS
+})
+@ActiveProfiles("test")
+class VirtualThreadLoadTest {
+
+	static final int PLATFORM_THREADS = 8;
+	private static final int REQUESTS = 64;
+	private static final int GEO_DELAY_MS = 250;
+	//The access check and the call log each look the client up once
+	private static final int GEO_CALLS_PER_REQUEST = 2;
+
+	private static final WireMockServer geoApi = new WireMockServer(options().dynamicPort());
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void geoApiUrl(DynamicPropertyRegistry registry) {
+		geoApi.start();
+		registry.add("ip-api.base.url", () -> geoApi.baseUrl() + "/json/");
+	}
+
+	@AfterAll
+	static void stopGeoApi() {
+		geoApi.stop();
+	}
+
+	@Test
+	void burstOfUploads_isNotCappedByTheServletThreadPool() throws Exception {
+		geoApi.stubFor(get(urlPathMatching("/json/.*"))
+				.willReturn(okJson("""
+                    {
+                        "countryCode": "CA",
+                        "isp": "Bell Canada"
+                    }
+                    """).withFixedDelay(GEO_DELAY_MS)));
+
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		String boundary = "load-test-boundary";
+		byte[] body = ("--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"data.txt\"\r\n"
+				+ "Content-Type: text/plain\r\n\r\n"
+				+ "18148426-89e1-11ee-b9d1-0242ac120002|1X1D14|John Smith|Likes Apricots|Rides A Bike|6.2|12.1\r\n"
+				+ "--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+		long start = System.nanoTime();
+		List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+		for (int i = 0; i < REQUESTS; i++) {
+			//A different client IP each time, so the geo lookup is never served from the cache
+			HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/process"))
+					.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+					.header("X-Real-IP", "10.0.0." + (i + 1))
+					.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+					.build();
+			responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+		}
+		CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		for (CompletableFuture<HttpResponse<String>> response : responses) {
+			assertThat(response.join().statusCode()).isEqualTo(200);
+		}
+
+		long platformBoundMs = (long) Math.ceil((double) REQUESTS / PLATFORM_THREADS) * GEO_CALLS_PER_REQUEST * GEO_DELAY_MS;
+		double concurrency = (double) REQUESTS * GEO_CALLS_PER_REQUEST * GEO_DELAY_MS / elapsedMs;
+
+		assertThat(elapsedMs)
+				.as("%d uploads in %d ms, %.1f in flight on average; %d platform threads need at least %d ms",
+						REQUESTS, elapsedMs, concurrency, PLATFORM_THREADS, platformBoundMs)
+				.isLessThan(platformBoundMs / 2);
+	}
+}